@@ -1,7 +1,7 @@
 
 /**
  * AVLNode class creates the nodes used to store data in AVL tree. 
- * 	Contains data for left, right, data and height of each node. 
+ * 	Contains data for left, right, data, height and subtree size of each node. 
  * 	Provides all the necessary getters and setters methods for AVL node. 
  * 	Extends comparable to make sure that generic type used in AVL node object
  * 	implements the compare to method. 
@@ -16,6 +16,7 @@ public class AVLNode <T extends Comparable <T>> implements Comparable <AVLNode <
 	private AVLNode <T> left;
 	private AVLNode <T> right;
 	int height;
+	int size;
 	
 	// constructors 
 	
@@ -30,6 +31,7 @@ public class AVLNode <T extends Comparable <T>> implements Comparable <AVLNode <
 		this.left = null;
 		this.right = null;
 		this.height = 0;
+		this.size = 1;
 	}
 	
 	/**
@@ -45,6 +47,7 @@ public class AVLNode <T extends Comparable <T>> implements Comparable <AVLNode <
 		this.left = left;
 		this.right = right;
 		this.height = 0;
+		this.size = 1;
 	}
 	
 	/**
@@ -57,6 +60,17 @@ public class AVLNode <T extends Comparable <T>> implements Comparable <AVLNode <
 		this.data = data;
 	}
 	
+	/**
+	 * Copies the data of another node into this one. Remove uses this when a 
+	 * 	node takes the place of its predecessor, so node classes that keep more 
+	 * 	than the data, such as the value of a map entry, copy that as well. 
+	 * @param other node whose data is copied. 
+	 */
+	protected void copyData(AVLNode<T> other) {
+		
+		this.data = other.data;
+	}
+	
 	/**
 	 * Setter method to set left subtree of node. 
 	 * @param left subtree of the node. 
@@ -103,6 +117,25 @@ public class AVLNode <T extends Comparable <T>> implements Comparable <AVLNode <
 		return this.height;
 	}
 	
+	/**
+	 * Setter method for the number of nodes in the subtree rooted at this node. 
+	 * @param size of the subtree. 
+	 */
+	public void setSize(int size) {
+		
+		this.size = size;
+	}
+	
+	/**
+	 * Getter method for user to be able to access the number of nodes 
+	 * 	in the subtree rooted at this node. 
+	 * @return integer representing size of the subtree. 
+	 */
+	public int getSize() {
+		
+		return this.size;
+	}
+	
 	/**
 	 * Getter method for user to be able to access left subtree of the node.
 	 * @return left subtree of the node. 
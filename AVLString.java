@@ -1,3 +1,5 @@
+import java.util.*;
+
 
 /**
  * String AVL class extends AVL tree and provides extra method 
@@ -13,6 +15,45 @@ public class AVLString extends AVLTree<String>{
 		super();
 	}
 	
+	/**
+	 * Creates a balanced tree from words in ascending order in linear time. 
+	 * 	Input that is not sorted is sorted first. 
+	 * @param words in ascending order. 
+	 * @return balanced tree containing the words. 
+	 */
+	public static AVLString fromSortedWords(String[] words) {
+		
+		return fromSortedWords(Arrays.asList(words).iterator());
+	}
+	
+	/**
+	 * Creates a balanced tree from words read from an iterator in ascending
+	 * 	order, without knowing the number of words in advance. 
+	 * @param words in ascending order. 
+	 * @return balanced tree containing the words. 
+	 */
+	public static AVLString fromSortedWords(Iterator<String> words) {
+		
+		AVLString tree = new AVLString();
+		tree.buildFromSorted(words);
+		return tree;
+	}
+	
+	/**
+	 * Creates a balanced tree from words in ascending order, building 
+	 * 	subtrees of large ranges concurrently. 
+	 * @param words in ascending order. 
+	 * @param parallelism number of worker threads. 
+	 * @param sequentialCutoff largest range that is built by a single task. 
+	 * @return balanced tree containing the words. 
+	 */
+	public static AVLString fromSortedWordsParallel(String[] words, int parallelism, int sequentialCutoff) {
+		
+		AVLString tree = new AVLString();
+		tree.buildFromSortedParallel(words, parallelism, sequentialCutoff);
+		return tree;
+	}
+	
 	/**
 	 * Contains prefix helper method accessed by the user in order
 	 * 	to check whether AVL tree contains a certain prefix. 
@@ -22,41 +63,202 @@ public class AVLString extends AVLTree<String>{
 	public boolean containsPrefix (String data) {
 		
 		// tree if prefix exists. 
-		return recContainsPrefix(super.root, data);
+		return findPrefix(super.root, data);
 	}
 	
+	/**
+	 * Returns a view of all the words in the tree that start with the prefix. 
+	 * 	The view seeks to the first word with the prefix in O(logN) and returns
+	 * 	the matching words lazily in alphabetical order. 
+	 * @param prefix that the returned words start with. 
+	 * @return iterable view of the words starting with the prefix. 
+	 */
+	public Iterable<String> prefixRange(String prefix) {
+		
+		String end = prefixEnd(prefix);
+		
+		// no string is greater than every word with the prefix 
+		if (end == null) {
+			return tailSet(prefix);
+		}
+		return subSet(prefix, end);
+	}
 	
 	/**
-	 * Recursive contains prefix method recursively searchers through the tree structure
-	 * 	in order to find whether prefix exists in the tree. Uses compareTo method to
-	 * 	check whether the method should go left or right to find the data. 
-	 * @param node tree that is being searched. 
-	 * @param data prefix that is searched for in the tree. 
-	 * @return true if prefix is found. 
+	 * Finds the smallest string that is greater than every string starting 
+	 * 	with the prefix by incrementing its last character that is not the 
+	 * 	largest character value. 
+	 * @param prefix of the range. 
+	 * @return exclusive end of the prefix range or null if there is none. 
 	 */
-	private boolean recContainsPrefix(AVLNode<String> node, String data) {
+	private static String prefixEnd(String prefix) {
 		
-		// empty tree 
-		if (node == null) {
+		for (int i = prefix.length() - 1; i >= 0; i--) {
 			
-			return false;
+			char c = prefix.charAt(i);
+			if (c != Character.MAX_VALUE) {
+				return prefix.substring(0, i) + (char) (c + 1);
+			}
 		}
-		// return true if data in node starts with the prefix 
-		else if (node.getData().startsWith(data)) {
+		return null;
+	}
+	
+	/**
+	 * Checks whether the word is in the tree. The descent remembers how many 
+	 * 	leading characters the word shares with the closest smaller and larger 
+	 * 	words seen so far; every word below them shares at least the smaller of 
+	 * 	the two, so each comparison starts there instead of at the first character. 
+	 * @param data word that is searched for. 
+	 * @return true if the word is found. 
+	 */
+	@Override
+	public boolean contains(String data) {
+		
+		AVLNode<String> node = super.root;
+		int visited = 0;
+		
+		// common prefix with the last word the search went right and left of 
+		int lowMatch = 0;
+		int highMatch = 0;
+		
+		while (node != null) {
+			
+			String word = node.getData();
+			int match = commonPrefix(data, word, Math.min(lowMatch, highMatch));
+			int cmp = compareAt(data, word, match);
+			visited++;
 			
-			return true;
+			if (cmp < 0) {
+				highMatch = match;
+				node = node.getLeft();
+			}
+			else if (cmp > 0) {
+				lowMatch = match;
+				node = node.getRight();
+			}
+			else {
+				break;
+			}
 		}
+		if (TreeMetrics.ENABLED) {
+			TreeMetrics.lookup(visited);
+		}
+		return (node != null);
+	}
+	
+	/**
+	 * Searches for a word that starts with the prefix, comparing each word 
+	 * 	from the common prefix known from the bounds like contains. 
+	 * @param node tree that is being searched. 
+	 * @param data prefix that is searched for in the tree. 
+	 * @return true if prefix is found. 
+	 */
+	private boolean findPrefix(AVLNode<String> node, String data) {
+		
+		int lowMatch = 0;
+		int highMatch = 0;
+		int visited = 0;
 		
-		// keep comparing 
-		else if (data.compareTo(node.getData()) < 0) {
+		while (node != null) {
+			
+			String word = node.getData();
+			int match = commonPrefix(data, word, Math.min(lowMatch, highMatch));
+			visited++;
+			
+			// return true if data in node starts with the prefix 
+			if (match == data.length()) {
+				break;
+			}
 			
 			// go left 
-			return recContainsPrefix(node.getLeft(), data);
+			if (compareAt(data, word, match) < 0) {
+				highMatch = match;
+				node = node.getLeft();
+			}
+			// go right 
+			else {
+				lowMatch = match;
+				node = node.getRight();
+			}
+		}
+		if (TreeMetrics.ENABLED) {
+			TreeMetrics.lookup(visited);
 		}
-		else {
+		return (node != null);
+	}
+	
+	/**
+	 * Seeks the start of a range the same way contains searches, so that 
+	 * 	subSet, tailSet and prefixRange do not compare shared prefixes again. 
+	 * @param data value to seek. 
+	 * @param stack stack of nodes with room for the height of the tree. 
+	 * @param depth number of nodes already on the stack. 
+	 * @return number of nodes on the stack afterwards. 
+	 */
+	@Override
+	protected int pushCeilingPath(String data, AVLNode<String>[] stack, int depth) {
+		
+		AVLNode<String> node = super.root;
+		int lowMatch = 0;
+		int highMatch = 0;
+		int visited = 0;
+		
+		while (node != null) {
 			
-			// go right 
-			return recContainsPrefix(node.getRight(), data);
-		}	
+			String word = node.getData();
+			int match = commonPrefix(data, word, Math.min(lowMatch, highMatch));
+			visited++;
+			
+			if (compareAt(data, word, match) <= 0) {
+				stack[depth++] = node;
+				highMatch = match;
+				node = node.getLeft();
+			}
+			else {
+				lowMatch = match;
+				node = node.getRight();
+			}
+		}
+		if (TreeMetrics.ENABLED) {
+			TreeMetrics.lookup(visited);
+		}
+		return depth;
+	}
+	
+	/**
+	 * Returns the length of the common prefix of two strings that are known 
+	 * 	to be equal up to a position. 
+	 * @param a first string. 
+	 * @param b second string. 
+	 * @param from number of leading characters known to be equal. 
+	 * @return length of the common prefix. 
+	 */
+	private static int commonPrefix(String a, String b, int from) {
+		
+		int limit = Math.min(a.length(), b.length());
+		int i = from;
+		while (i < limit && a.charAt(i) == b.charAt(i)) {
+			i++;
+		}
+		return i;
+	}
+	
+	/**
+	 * Compares two strings the way compareTo does, given the length of 
+	 * 	their common prefix. 
+	 * @param key first string. 
+	 * @param word second string. 
+	 * @param match length of the common prefix. 
+	 * @return negative, zero or positive as key is less than, equal to or greater than word. 
+	 */
+	private static int compareAt(String key, String word, int match) {
+		
+		if (match == key.length()) {
+			return (match == word.length()) ? 0 : -1;
+		}
+		if (match == word.length()) {
+			return 1;
+		}
+		return key.charAt(match) - word.charAt(match);
 	}
 }
@@ -1,4 +1,8 @@
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
 /**
  * AVLTree class contains tree structure that is used to store words
@@ -13,8 +17,17 @@ public class AVLTree <T extends Comparable <T>> implements Iterable <T> {
 	
 	// instantiate attributes for BST class 
 	
+	// ranges up to this length are built by a single task in a parallel build 
+	static final int DEFAULT_SEQUENTIAL_CUTOFF = 8192;
+	
 	protected AVLNode <T> root;
 	
+	// nodes visited by add and remove, reused between calls 
+	private AVLNode <T>[] path;
+	
+	// number of structural changes, used by iterators to fail fast 
+	private int modCount;
+	
 	/**
 	 * Constructor for AVL tree creates an empty tree object 
 	 */
@@ -25,178 +38,637 @@ public class AVLTree <T extends Comparable <T>> implements Iterable <T> {
 	
 	
 	/**
-	 * Add method that can be accessed by the user in order 
-	 * 	to add elements to AVL tree. Add method calls recursion add so that user 
-	 * 	cannot access nodes and do not have to know the underlying structure
-	 *  of how data is stored in the tree. 
-	 * @param data that is inserted into the tree 
+	 * Creates a balanced tree from data in ascending order in linear time. 
+	 * 	Null elements are skipped and duplicates are kept. Input that is not 
+	 * 	sorted is detected and sorted first, which takes O(NlogN) instead. 
+	 * @param data elements in ascending order. 
+	 * @return balanced tree containing the data. 
 	 */
-	public void add(T data) {
+	public static <T extends Comparable<T>> AVLTree<T> fromSorted(T[] data) {
 		
-		// if data not null
-		if (data != null) {
-			this.root = recAdd(root, data);	
-		}		
+		return fromSorted(Arrays.asList(data).iterator());
 	}
 	
 	/**
-	 * Recursion add method compares data with code and recursively goes through the tree structure
-	 *  until the correct position is found where the new data gets added. The method automatically
-	 *  update height of nodes in the tree after every time a new node is added and calls balance factor 
-	 *  to check whether tree has to be re balanced. 
-	 * @param node tree that new node is added to 
-	 * @param data that is inserted to the tree 
-	 * @return
+	 * Creates a balanced tree from a list in ascending order in linear time. 
+	 * @param data elements in ascending order. 
+	 * @return balanced tree containing the data. 
+	 * @see #fromSorted(Comparable[])
 	 */
-	private AVLNode<T> recAdd(AVLNode<T> node, T data) {
+	public static <T extends Comparable<T>> AVLTree<T> fromSorted(List<T> data) {
+		
+		return fromSorted(data.iterator());
+	}
 	
-		if (node == null) {	
-			// where node is being added 
-			node = new AVLNode<T> (data);
+	/**
+	 * Creates a balanced tree from elements read from an iterator in ascending 
+	 * 	order. The number of elements does not have to be known in advance. 
+	 * @param data elements in ascending order. 
+	 * @return balanced tree containing the data. 
+	 * @see #fromSorted(Comparable[])
+	 */
+	public static <T extends Comparable<T>> AVLTree<T> fromSorted(Iterator<? extends T> data) {
+		
+		AVLTree<T> tree = new AVLTree<T>();
+		tree.buildFromSorted(data);
+		return tree;
+	}
+	
+	/**
+	 * Creates a balanced tree from an array in ascending order, building the 
+	 * 	left and right subtrees of large ranges concurrently on the common 
+	 * 	fork/join pool. 
+	 * @param data elements in ascending order. 
+	 * @return balanced tree containing the data. 
+	 * @see #fromSortedParallel(Comparable[], int, int)
+	 */
+	public static <T extends Comparable<T>> AVLTree<T> fromSortedParallel(T[] data) {
+		
+		return fromSortedParallel(data, ForkJoinPool.getCommonPoolParallelism(), DEFAULT_SEQUENTIAL_CUTOFF);
+	}
+	
+	/**
+	 * Creates a balanced tree from an array in ascending order. The array is split 
+	 * 	recursively at its middle element and the two halves are built as separate 
+	 * 	fork/join tasks until a range is no longer than the cutoff, which is then 
+	 * 	built sequentially. The tree has the same shape as one built by fromSorted. 
+	 * 	Null elements and input that is not sorted are handled like in fromSorted. 
+	 * @param data elements in ascending order. 
+	 * @param parallelism number of worker threads. 
+	 * @param sequentialCutoff largest range that is built by a single task. 
+	 * @return balanced tree containing the data. 
+	 * @throws IllegalArgumentException if parallelism or sequentialCutoff is less than one. 
+	 */
+	public static <T extends Comparable<T>> AVLTree<T> fromSortedParallel(T[] data, int parallelism, int sequentialCutoff) {
+		
+		AVLTree<T> tree = new AVLTree<T>();
+		tree.buildFromSortedParallel(data, parallelism, sequentialCutoff);
+		return tree;
+	}
+	
+	/**
+	 * Replaces the content of the tree with the elements of the array, 
+	 * 	building subtrees concurrently. 
+	 * @param data elements in ascending order. 
+	 * @param parallelism number of worker threads. 
+	 * @param sequentialCutoff largest range that is built by a single task. 
+	 */
+	protected void buildFromSortedParallel(T[] data, int parallelism, int sequentialCutoff) {
+		
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("Parallelism must be at least one: " + parallelism);
+		}
+		if (sequentialCutoff < 1) {
+			throw new IllegalArgumentException("Sequential cutoff must be at least one: " + sequentialCutoff);
+		}
+		
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			
+			AtomicBoolean sorted = new AtomicBoolean(true);
+			AVLNode<T> built = pool.invoke(new BuildTask(data, 0, data.length, sequentialCutoff, sorted));
+			
+			// drop nulls, sort and build again 
+			if (!sorted.get()) {
+				
+				T[] values = Arrays.copyOf(data, data.length);
+				int count = 0;
+				for (int i = 0; i < values.length; i++) {
+					if (values[i] != null) {
+						values[count++] = values[i];
+					}
+				}
+				values = Arrays.copyOf(values, count);
+				Arrays.parallelSort(values);
+				built = pool.invoke(new BuildTask(values, 0, count, sequentialCutoff, sorted));
+			}
+			
+			root = built;
+			modCount++;
+		}
+		finally {
+			pool.shutdown();
+		}
+	}
+	
+	/**
+	 * Fork/join task that builds a balanced subtree from a range of a sorted array
+	 * 	and checks on the way that the range is sorted and has no null elements. 
+	 * 	Every pair of neighbouring elements is checked by exactly one task. 
+	 */
+	private class BuildTask extends RecursiveTask<AVLNode<T>> {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private final T[] data;
+		private final int first;
+		private final int end;
+		private final int cutoff;
+		
+		// cleared by any task that finds a null or an element out of order 
+		private final AtomicBoolean sorted;
+		
+		/**
+		 * Constructor sets the range the task builds. 
+		 * @param data sorted array. 
+		 * @param first index of first element of the range. 
+		 * @param end index after the last element of the range. 
+		 * @param cutoff largest range that is built without forking. 
+		 * @param sorted flag cleared when the input is not sorted. 
+		 */
+		BuildTask(T[] data, int first, int end, int cutoff, AtomicBoolean sorted) {
+			
+			this.data = data;
+			this.first = first;
+			this.end = end;
+			this.cutoff = cutoff;
+			this.sorted = sorted;
+		}
+		
+		/**
+		 * Builds the range sequentially when it is small, otherwise forks the 
+		 * 	left half, builds the right half in this thread and joins them 
+		 * 	under the middle element. 
+		 * @return root of the subtree. 
+		 */
+		@Override
+		protected AVLNode<T> compute() {
+			
+			int count = end - first;
+			
+			// small range, build and check sequentially 
+			if (count <= cutoff) {
+				
+				for (int i = first; i < end; i++) {
+					if (data[i] == null || (i + 1 < end && !inOrder(data[i], data[i + 1]))) {
+						sorted.set(false);
+					}
+				}
+				return buildRange(first, end);
+			}
+			
+			int mid = first + (count - 1) / 2;
+			
+			// check middle element against its neighbours in the two halves 
+			if (data[mid] == null || (mid > first && !inOrder(data[mid - 1], data[mid])) 
+					|| (mid + 1 < end && !inOrder(data[mid], data[mid + 1]))) {
+				sorted.set(false);
+			}
+			
+			BuildTask leftTask = new BuildTask(data, first, mid, cutoff, sorted);
+			BuildTask rightTask = new BuildTask(data, mid + 1, end, cutoff, sorted);
+			leftTask.fork();
+			AVLNode<T> right = rightTask.compute();
+			AVLNode<T> left = leftTask.join();
+			
+			AVLNode<T> node = new AVLNode<T>(data[mid], left, right);
 			updateHeight(node);
-			return node;	
+			updateSize(node);
+			return node;
 		}
 		
-		// if data is less than node data 
-		else if (data.compareTo(node.getData()) <= 0) {
-			node.setLeft(recAdd(node.getLeft(), data));
+		/**
+		 * Recursively builds a balanced subtree from a range, splitting it 
+		 * 	the same way as buildBalanced. 
+		 * @param from index of first element. 
+		 * @param to index after the last element. 
+		 * @return root of the subtree. 
+		 */
+		private AVLNode<T> buildRange(int from, int to) {
+			
+			if (from == to) {
+				return null;
+			}
+			
+			int mid = from + (to - from - 1) / 2;
+			AVLNode<T> node = new AVLNode<T>(data[mid], buildRange(from, mid), buildRange(mid + 1, to));
+			updateHeight(node);
+			updateSize(node);
+			return node;
 		}
 		
-		// data greater than node 
-		else {
-			node.setRight(recAdd(node.getRight(), data));
+		/**
+		 * Checks that two neighbouring elements are not null and in order. 
+		 * @param smaller element that should come first. 
+		 * @param larger element that should come second. 
+		 * @return true if both are present and in ascending order. 
+		 */
+		private boolean inOrder(T smaller, T larger) {
+			
+			return (smaller != null && larger != null && smaller.compareTo(larger) <= 0);
 		}
+	}
+	
+	/**
+	 * Replaces the content of the tree with the elements read from the iterator. 
+	 * 	The nodes are first linked into a list through their right children, 
+	 * 	then the list is turned into a tree in which the sizes of the two subtrees 
+	 * 	of every node differ by at most one, so every balance factor is 
+	 * 	between -1 and 1 and no rotation is needed. 
+	 * @param data elements in ascending order. 
+	 */
+	protected void buildFromSorted(Iterator<? extends T> data) {
 		
-		// update height
-		updateHeight(node);
-		int factor = balanceFactor(node);
+		AVLNode<T> head = null;
+		AVLNode<T> tail = null;
+		int count = 0;
+		boolean sorted = true;
 		
-		// check balance here 
-		if (factor == 2 || factor == -2) {
+		// link nodes in a list and check order on the way 
+		while (data.hasNext()) {
 			
-			node = fixTree(node, factor);
+			T value = data.next();
+			if (value == null) {
+				continue;
+			}
+			
+			AVLNode<T> node = new AVLNode<T>(value);
+			if (tail == null) {
+				head = node;
+			}
+			else {
+				if (sorted && tail.getData().compareTo(value) > 0) {
+					sorted = false;
+				}
+				tail.setRight(node);
+			}
+			tail = node;
+			count++;
 		}
 		
-		//System.out.println("Balance factor: " + factor);
+		if (!sorted) {
+			sortList(head, count);
+		}
 		
-		return node;
+		@SuppressWarnings({"unchecked", "rawtypes"})
+		AVLNode<T>[] cursor = (AVLNode<T>[]) new AVLNode[] {head};
+		root = buildBalanced(cursor, count);
+		modCount++;
 	}
 	
+	/**
+	 * Sorts the data of nodes linked through their right children 
+	 * 	without creating new nodes. 
+	 * @param head first node of the list. 
+	 * @param count number of nodes in the list. 
+	 */
+	private void sortList(AVLNode<T> head, int count) {
+		
+		Object[] values = new Object[count];
+		AVLNode<T> node = head;
+		for (int i = 0; i < count; i++) {
+			values[i] = node.getData();
+			node = node.getRight();
+		}
+		
+		Arrays.sort(values);
+		
+		node = head;
+		for (int i = 0; i < count; i++) {
+			@SuppressWarnings("unchecked")
+			T value = (T) values[i];
+			node.setData(value);
+			node = node.getRight();
+		}
+	}
 	
-	// remove method goes here 
+	/**
+	 * Recursively builds a balanced tree from the next count nodes of the list. 
+	 * 	The left subtree is built first so that the nodes are taken in order. 
+	 * @param cursor holds the next node of the list. 
+	 * @param count number of nodes to take from the list. 
+	 * @return root of the balanced subtree. 
+	 */
+	private AVLNode<T> buildBalanced(AVLNode<T>[] cursor, int count) {
+		
+		if (count == 0) {
+			return null;
+		}
+		
+		int leftCount = (count - 1) / 2;
+		AVLNode<T> left = buildBalanced(cursor, leftCount);
+		
+		// take next node of the list 
+		AVLNode<T> node = cursor[0];
+		cursor[0] = node.getRight();
+		
+		node.setLeft(left);
+		node.setRight(buildBalanced(cursor, count - 1 - leftCount));
+		
+		// update height and size 
+		updateHeight(node);
+		updateSize(node);
+		return node;
+	}
 	
 	/**
-	 * Remove method accessed by user in order to remove specified data from the tree
-	 * 	This makes sure that user does not have access to node or have to understand
-	 * 	underlying structure of the tree. Remove method calls recursion remove. 
-	 * @param data that is removed from the tree. 
+	 * Add method that can be accessed by the user in order 
+	 * 	to add elements to AVL tree. The method walks down the tree iteratively,
+	 * 	comparing the data once per node and recording every node visited on the 
+	 * 	path stack, then links the new node and re-balances the path bottom up. 
+	 * 	Data equal to a node is added to its left subtree. 
+	 * @param data that is inserted into the tree 
 	 */
-	public void remove(T data) {
+	public void add(T data) {
 		
-		// if data is not null
+		// if data not null
 		if (data != null) {
-			this.root = recRemove(this.root, data);
+			
+			modCount++;
+			
+			// empty tree, new node becomes the root 
+			if (root == null) {
+				root = newNode(data);
+				if (TreeMetrics.ENABLED) {
+					TreeMetrics.update(1, 0);
+				}
+				return;
+			}
+			
+			AVLNode<T>[] stack = pathStack();
+			int depth = 0;
+			int cmp = 0;
+			AVLNode<T> node = root;
+			
+			// go down until an empty position is found 
+			while (node != null) {
+				
+				stack[depth++] = node;
+				cmp = data.compareTo(node.getData());
+				node = (cmp <= 0) ? node.getLeft() : node.getRight();
+			}
+			if (TreeMetrics.ENABLED) {
+				TreeMetrics.update(depth + 1, depth);
+			}
+			
+			// link new node to the last node on the path 
+			AVLNode<T> parent = stack[depth - 1];
+			if (cmp <= 0) {
+				parent.setLeft(newNode(data));
+			}
+			else {
+				parent.setRight(newNode(data));
+			}
+			
+			rebalancePath(stack, depth);
+		}		
+	}
+	
+	/**
+	 * Creates the node that add and findOrAdd link into the tree. Subclasses 
+	 * 	that keep more than the data in a node, such as the value of a map, 
+	 * 	override this to create their own kind of node. 
+	 * @param data that is stored in the node. 
+	 * @return new leaf node. 
+	 */
+	protected AVLNode<T> newNode(T data) {
+		
+		return new AVLNode<T>(data);
+	}
 	
+	/**
+	 * Finds the node that holds data with one comparison per node. 
+	 * @param data that is searched for. 
+	 * @return node equal to data, or null if there is none. 
+	 */
+	protected AVLNode<T> findNode(T data) {
+		
+		AVLNode<T> node = root;
+		int visited = 0;
+		
+		while (node != null) {
+			
+			int cmp = data.compareTo(node.getData());
+			visited++;
+			if (cmp == 0) {
+				break;
+			}
+			node = (cmp < 0) ? node.getLeft() : node.getRight();
+		}
+		if (TreeMetrics.ENABLED) {
+			TreeMetrics.lookup(visited);
 		}
-		// reset root to reference new tree 
+		return node;
 	}
 	
 	/**
-	 * Recursively searchers through the tree to find node that needs 
-	 * 	to be removed and calls remove method when data is found. 
-	 * @param node that data is being removed from. 
-	 * @param data that is removed from the tree structure. 
-	 * @return The new tree structure after data has been removed. 
+	 * Finds the node that holds data, or adds a node for it, in a single walk 
+	 * 	down the tree. Unlike add, data equal to a node is never added again, so 
+	 * 	subclasses can keep one node per key. A node that is added is created 
+	 * 	with newNode and the path is re-balanced; rotations move nodes but never 
+	 * 	their data, so the node returned still holds data afterwards. 
+	 * @param data that is searched for or added. 
+	 * @return node equal to data, which was created by newNode if it was added. 
 	 */
-	private AVLNode<T> recRemove(AVLNode<T> node, T data) {
+	protected AVLNode<T> findOrAdd(T data) {
+		
+		if (root == null) {
+			modCount++;
+			root = newNode(data);
+			if (TreeMetrics.ENABLED) {
+				TreeMetrics.update(1, 0);
+			}
+			return root;
+		}
+		
+		AVLNode<T>[] stack = pathStack();
+		int depth = 0;
+		int cmp = 0;
+		AVLNode<T> node = root;
 		
-		if (node == null) {
-			; // do nothing 
+		// go down until the data or an empty position is found 
+		while (node != null) {
+			
+			cmp = data.compareTo(node.getData());
+			if (cmp == 0) {
+				break;
+			}
+			stack[depth++] = node;
+			node = (cmp < 0) ? node.getLeft() : node.getRight();
 		}
-		else if (data.compareTo(node.getData()) < 0) {
-			// search left subtree
-			node.setLeft(recRemove(node.getLeft(), data));
+		
+		// found, the tree is not changed 
+		if (node != null) {
+			if (TreeMetrics.ENABLED) {
+				TreeMetrics.lookup(depth + 1);
 			}
-		else if (data.compareTo(node.getData()) > 0) {
-			// search right subtree
-			node.setRight(recRemove(node.getRight(), data));
+			while (depth > 0) {
+				stack[--depth] = null;
 			}
+			return node;
+		}
 		
+		if (TreeMetrics.ENABLED) {
+			TreeMetrics.update(depth + 1, depth);
+		}
+		modCount++;
+		AVLNode<T> added = newNode(data);
+		if (cmp < 0) {
+			stack[depth - 1].setLeft(added);
+		}
 		else {
-			// reassign node 
-			node = remove(node);
-			
-			// update height 
-			updateHeight(node);
-			
-			int factor = balanceFactor(node);
-			// check balance here 
-			if (factor == 2 || factor == -2) {
-				
-				node = fixTree(node, factor);
-			}
+			stack[depth - 1].setRight(added);
 		}
-		// return node
-		return node;
+		rebalancePath(stack, depth);
+		return added;
+	}
+	
+	/**
+	 * Passes every node to the action in ascending order, for subclasses that 
+	 * 	read more than the data of a node, such as the value of a map. The 
+	 * 	action must not add or remove data. 
+	 * @param action called for every node. 
+	 */
+	protected void forEachNode(Consumer<? super AVLNode<T>> action) {
 		
+		forEachNode(root, action);
 	}
 	
 	/**
-	 * Performs remove operation on tree after node that is going to be removed
-	 * 	has been found. Method checks whether node being removed has one child
-	 * 	or two children and performs remove method accordingly. Remove method automatically
-	 * 	calls update height method after a node has been removed and re balances the tree
-	 * 	when necessary. 
-	 * @param node that data is being removed from. 
-	 * @return node after data has been removed. 
+	 * Walks a subtree in order, looping down the right spine so only left 
+	 * 	children add to the recursion depth. 
+	 * @param node root of the subtree. 
+	 * @param action called for every node. 
 	 */
-	private AVLNode<T> remove(AVLNode<T> node) {
+	private void forEachNode(AVLNode<T> node, Consumer<? super AVLNode<T>> action) {
 		
-		// conditions for node with one child 
-		if (node.getLeft() == null) {
-			return node.getRight();
+		while (node != null) {
+			forEachNode(node.getLeft(), action);
+			action.accept(node);
+			node = node.getRight();
 		}
+	}
+	
+	/**
+	 * Remove method accessed by user in order to remove specified data from the tree
+	 * 	This makes sure that user does not have access to node or have to understand
+	 * 	underlying structure of the tree. The node is found iteratively with one comparison
+	 * 	per node; a node with two children takes the data of its predecessor, which 
+	 * 	is then unlinked instead. Every node on the path is re-balanced afterwards. 
+	 * @param data that is removed from the tree. 
+	 */
+	public void remove(T data) {
 		
-		// no right child return left child 
-		else if (node.getRight() == null) {
-			return node.getLeft();
-		}
-		else {
+		// if data is not null
+		if (data != null) {
 			
-			// special case for node with two children 
-			// get data stored in node that is going to replace removed node
-			T data = getPredecessor(node);
-			node.setData(data);
-			node.setLeft(recRemove(node.getLeft(), data));
+			AVLNode<T>[] stack = pathStack();
+			int depth = 0;
+			int compared = 0;
+			AVLNode<T> node = root;
 			
-			// implement AVL 
+			// search for the node that holds the data 
+			while (node != null) {
+				
+				int cmp = data.compareTo(node.getData());
+				compared++;
+				if (cmp == 0) {
+					break;
+				}
+				stack[depth++] = node;
+				node = (cmp < 0) ? node.getLeft() : node.getRight();
+			}
+			if (TreeMetrics.ENABLED) {
+				TreeMetrics.update(compared, compared);
+			}
 			
+			// data is not in the tree 
+			if (node == null) {
+				return;
+			}
+			modCount++;
 			
-			return node;
+			// special case for node with two children 
+			if (node.getLeft() != null && node.getRight() != null) {
+				
+				// rightmost node in the left subtree replaces removed data 
+				stack[depth++] = node;
+				AVLNode<T> predecessor = node.getLeft();
+				while (predecessor.getRight() != null) {
+					stack[depth++] = predecessor;
+					predecessor = predecessor.getRight();
+				}
+				node.copyData(predecessor);
+				replaceChild(stack, depth, predecessor, predecessor.getLeft());
+			}
+			
+			// node with at most one child 
+			else if (node.getLeft() == null) {
+				replaceChild(stack, depth, node, node.getRight());
+			}
+			else {
+				replaceChild(stack, depth, node, node.getLeft());
+			}
+			
+			rebalancePath(stack, depth);
 		}
 	}
 	
 	/**
-	 * Retrieves the node that will replaced removed node. Gets the rightmost 
-	 * 	node in the left subtree of the given node. 
-	 * @param node that data is being removed from 
-	 * @return data of rightmost node in the left subtree. 
+	 * Returns the path stack shared by add and remove. The stack is only 
+	 * 	re-allocated when the tree has grown taller than the stack, so 
+	 * 	that add and remove do not allocate on every call. 
+	 * @return array large enough to hold every node on a root to leaf path. 
 	 */
-	private T getPredecessor(AVLNode<T> node) {
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private AVLNode<T>[] pathStack() {
+		
+		// a path holds at most height + 1 nodes 
+		int needed = (root == null) ? 1 : root.getHeight() + 2;
 		
-		if (node.getLeft() == null) {
-			// there should be a left child 
-			throw new NoSuchElementException("Error: there should be a left chlid");
+		if (path == null || path.length < needed) {
+			path = (AVLNode<T>[]) new AVLNode[max(needed * 2, 32)];
 		}
+		return path;
+	}
+	
+	/**
+	 * Replaces child of the last node on the path stack (or the root 
+	 * 	when the stack is empty) with the replacement subtree. 
+	 * @param stack nodes visited from the root. 
+	 * @param depth number of nodes on the stack. 
+	 * @param child node that is being replaced. 
+	 * @param replacement subtree that takes the place of child. 
+	 */
+	private void replaceChild(AVLNode<T>[] stack, int depth, AVLNode<T> child, AVLNode<T> replacement) {
 		
+		if (depth == 0) {
+			root = replacement;
+		}
+		else if (stack[depth - 1].getLeft() == child) {
+			stack[depth - 1].setLeft(replacement);
+		}
 		else {
-			// keep current node 
-			AVLNode<T> current = node.getLeft();
-			// while there is still more right children 
-			while(current.getRight() != null) {
-				current = current.getRight();
+			stack[depth - 1].setRight(replacement);
+		}
+	}
+	
+	/**
+	 * Walks back up the path stack after an add or remove, updating the height
+	 * 	and size of every node and re-balancing it when the balance factor becomes
+	 * 	-2 or 2. The stack is cleared on the way so that it does not keep 
+	 * 	removed nodes reachable. 
+	 * @param stack nodes visited from the root. 
+	 * @param depth number of nodes on the stack. 
+	 */
+	private void rebalancePath(AVLNode<T>[] stack, int depth) {
+		
+		for (int i = depth - 1; i >= 0; i--) {
+			
+			AVLNode<T> node = stack[i];
+			stack[i] = null;
+			
+			// update height and size 
+			updateHeight(node);
+			updateSize(node);
+			int factor = balanceFactor(node);
+			
+			// check balance here 
+			if (factor == 2 || factor == -2) {
+				
+				AVLNode<T> balanced = fixTree(node, factor);
+				replaceChild(stack, i, node, balanced);
 			}
-			return current.getData();
 		}
 	}
 	
@@ -218,8 +690,8 @@ public class AVLTree <T extends Comparable <T>> implements Iterable <T> {
 			// get left child 
 			AVLNode<T> leftChild = node.getLeft();
 			
-			// left left node caused imbalance 
-			if (balanceFactor(leftChild) == -1) {
+			// left left node caused imbalance (0 only happens after a remove)
+			if (balanceFactor(leftChild) <= 0) {
 				return balanceLL(node);
 			}
 			
@@ -239,7 +711,7 @@ public class AVLTree <T extends Comparable <T>> implements Iterable <T> {
 				return balanceRL(node);
 			}
 			
-			else if(balanceFactor(rightChild) == 1) {
+			else {
 				return balanceRR(node);
 			}
 		}
@@ -255,6 +727,10 @@ public class AVLTree <T extends Comparable <T>> implements Iterable <T> {
 	 */
 	private AVLNode<T> balanceLL (AVLNode<T> A) {
 		
+		if (TreeMetrics.ENABLED) {
+			TreeMetrics.rotation(TreeMetrics.LL);
+		}
+		
 		// store left child of node 
 		AVLNode<T> B = A.getLeft();
 		// reset left child to right subtree of B 
@@ -262,9 +738,11 @@ public class AVLTree <T extends Comparable <T>> implements Iterable <T> {
 		// set right subtree of B to be the original node 
 		B.setRight(A);
 		
-		// update height 
+		// update height and size 
 		updateHeight(A);
 		updateHeight(B);
+		updateSize(A);
+		updateSize(B);
 		
 		return B;	
 	}
@@ -278,6 +756,10 @@ public class AVLTree <T extends Comparable <T>> implements Iterable <T> {
 	 */
 	private AVLNode<T> balanceLR (AVLNode<T> A) {
 		
+		if (TreeMetrics.ENABLED) {
+			TreeMetrics.rotation(TreeMetrics.LR);
+		}
+		
 		// store left subtree of A
 		AVLNode<T> B = A.getLeft();
 		// store right subtree of B 
@@ -292,10 +774,13 @@ public class AVLTree <T extends Comparable <T>> implements Iterable <T> {
 		C.setLeft(B);
 		C.setRight(A);
 		
-		// update height 
+		// update height and size 
 		updateHeight(A);
 		updateHeight(B);
 		updateHeight(C);
+		updateSize(A);
+		updateSize(B);
+		updateSize(C);
 		
 		// balanced tree
 		return C;	
@@ -309,6 +794,10 @@ public class AVLTree <T extends Comparable <T>> implements Iterable <T> {
 	 */
 	private AVLNode<T> balanceRL (AVLNode<T> A) {
 		
+		if (TreeMetrics.ENABLED) {
+			TreeMetrics.rotation(TreeMetrics.RL);
+		}
+		
 		// store right subtree of A 
 		AVLNode<T> B = A.getRight();
 		// store left subtree of B 
@@ -321,10 +810,13 @@ public class AVLTree <T extends Comparable <T>> implements Iterable <T> {
 		C.setRight(B);
 		C.setLeft(A);
 		
-		// update height 
+		// update height and size 
 		updateHeight(A);
 		updateHeight(B);
 		updateHeight(C);
+		updateSize(A);
+		updateSize(B);
+		updateSize(C);
 		
 		return C;	
 	}
@@ -337,6 +829,10 @@ public class AVLTree <T extends Comparable <T>> implements Iterable <T> {
 	 */
 	private AVLNode<T> balanceRR (AVLNode<T> A) {
 		
+		if (TreeMetrics.ENABLED) {
+			TreeMetrics.rotation(TreeMetrics.RR);
+		}
+		
 		// store right subtree of A 
 		AVLNode<T> B = A.getRight();
 		// reset right subtree of A to left subtree of B 
@@ -344,9 +840,11 @@ public class AVLTree <T extends Comparable <T>> implements Iterable <T> {
 		// reset left subtree of B
 		B.setLeft(A);
 		
-		// update height 
+		// update height and size 
 		updateHeight(A);
 		updateHeight(B);
+		updateSize(A);
+		updateSize(B);
 		
 		// re-balanced tree 
 		return B;	
@@ -355,48 +853,131 @@ public class AVLTree <T extends Comparable <T>> implements Iterable <T> {
 	
 	/**
 	 * Contains method accessed by user in order to check whether 
-	 * 	a piece of data exists in the tree structure. Calls recursive 
-	 * 	contains method. 
+	 * 	a piece of data exists in the tree structure. Walks down the tree
+	 * 	iteratively and compares the data once per node. 
 	 * @param data that is searched for in the tree. 
 	 * @return true if data is found in the tree. 
 	 */
 	public boolean contains(T data) {
 		
-		// tree if found 
-		return recContains(root, data);
+		AVLNode<T> node = root;
+		int visited = 0;
+		
+		while (node != null) {
+			
+			int cmp = data.compareTo(node.getData());
+			visited++;
+			
+			// if data is less than node data go left
+			if (cmp < 0) {
+				node = node.getLeft();
+			}
+			// greater than node data; go right 
+			else if (cmp > 0) {
+				node = node.getRight();
+			}
+			else {
+				break;
+			}
+		}
+		if (TreeMetrics.ENABLED) {
+			TreeMetrics.lookup(visited);
+		}
+		
+		// true if found 
+		return (node != null);
+	}
+
+	/**
+	 * Returns the number of elements in the tree. Each node stores the size 
+	 * 	of its subtree, so this takes constant time. 
+	 * @return number of elements in the tree. 
+	 */
+	public int size() {
+		
+		return sizeOf(root);
 	}
 	
 	/**
-	 * Recursive contains method recursively searchers through the tree structure
-	 * 	in order to find whether data exists in the tree. Uses compareTo method to
-	 * 	check whether the method should go left or right to find the data. 
-	 * @param node tree that is being searched. 
-	 * @param data that is searched for in the tree. 
-	 * @return true if data is found. 
+	 * Returns the number of elements in the tree that are strictly less 
+	 * 	than data, which is also the index data would have in sorted order. 
+	 * @param data that is ranked. 
+	 * @return number of elements smaller than data. 
 	 */
-	private boolean recContains (AVLNode<T> node, T data) {
+	public int rank(T data) {
+		
+		int rank = 0;
+		int compared = 0;
+		AVLNode<T> node = root;
 		
-		// if tree is empty
-		if (node == null) {
+		while (node != null) {
 			
-			return false;
-		}
-		// if data is less than node data go left
-		else if (data.compareTo(node.getData()) < 0) {
+			compared++;
 			
-			return recContains(node.getLeft(), data);
+			// data is in left subtree 
+			if (data.compareTo(node.getData()) <= 0) {
+				node = node.getLeft();
+			}
+			// count left subtree and node, then go right 
+			else {
+				rank += sizeOf(node.getLeft()) + 1;
+				node = node.getRight();
+			}
+		}
+		if (TreeMetrics.ENABLED) {
+			TreeMetrics.compared(compared);
+		}
+		return rank;
+	}
+	
+	/**
+	 * Returns the element at the given index in sorted order. 
+	 * @param index of the element, starting at zero. 
+	 * @return element with index smaller elements before it. 
+	 * @throws IndexOutOfBoundsException if index is negative or not less than size. 
+	 */
+	public T select(int index) {
+		
+		if (index < 0 || index >= size()) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
 		}
-		// greater than node data; go right 
-		else if (data.compareTo(node.getData()) > 0) {
+		
+		AVLNode<T> node = root;
+		while (true) {
+			
+			int leftSize = sizeOf(node.getLeft());
 			
-			return recContains(node.getRight(), data);
+			// element is in left subtree 
+			if (index < leftSize) {
+				node = node.getLeft();
+			}
+			// element is in right subtree 
+			else if (index > leftSize) {
+				index -= leftSize + 1;
+				node = node.getRight();
+			}
+			else {
+				return node.getData();
+			}
 		}
-		else {
-			// true if found 
-			return true;
+	}
+	
+	/**
+	 * Counts the elements from fromData (inclusive) to toData (exclusive) 
+	 * 	without visiting them. 
+	 * @param fromData low end point of the range, inclusive. 
+	 * @param toData high end point of the range, exclusive. 
+	 * @return number of elements in the range. 
+	 */
+	public int countRange(T fromData, T toData) {
+		
+		// empty range 
+		if (fromData.compareTo(toData) >= 0) {
+			return 0;
 		}
+		return rank(toData) - rank(fromData);
 	}
-
+	
 	/**
 	 * Calculates balance factor of node to determine whether
 	 * 	the tree needs to be re-balanced. If balance factor returns -2 or
@@ -467,6 +1048,27 @@ public class AVLTree <T extends Comparable <T>> implements Iterable <T> {
 	}
 	
 	
+	/**
+	 * Resets the subtree size of a node from the sizes of its children. 
+	 * 	Called together with update height so that size, rank and select
+	 * 	never have to count nodes. 
+	 * @param node tree that has had a node either removed or added 
+	 */
+	private void updateSize(AVLNode<T> node) {
+		
+		node.setSize(sizeOf(node.getLeft()) + sizeOf(node.getRight()) + 1);
+	}
+	
+	/**
+	 * Returns number of nodes in a subtree. 
+	 * @param node tree to measure, may be null. 
+	 * @return size of the subtree or zero for an empty tree. 
+	 */
+	private int sizeOf(AVLNode<T> node) {
+		
+		return (node == null) ? 0 : node.getSize();
+	}
+	
 	/**
 	 * Determines the maximum height between left and right subtree 
 	 * @param right height of right subtree
@@ -536,45 +1138,168 @@ public class AVLTree <T extends Comparable <T>> implements Iterable <T> {
 	public Iterator<T> iterator() {
 		
 		// return new custom tree iterator object 
-		return (new TreeIterator());
+		return (new TreeIterator(null, null));
+	}
+	
+	/**
+	 * Returns a view of the elements from fromData (inclusive) to toData (exclusive).
+	 * 	Iterating the view seeks to fromData in O(logN) and then returns the elements 
+	 * 	lazily, so iterating k elements costs O(logN + k). 
+	 * @param fromData low end point of the range, inclusive. 
+	 * @param toData high end point of the range, exclusive. 
+	 * @return iterable view of the elements in the range. 
+	 * @throws IllegalArgumentException if fromData is greater than toData. 
+	 */
+	public Iterable<T> subSet(T fromData, T toData) {
+		
+		if (fromData == null || toData == null) {
+			throw new NullPointerException("Range end points cannot be null");
+		}
+		if (fromData.compareTo(toData) > 0) {
+			throw new IllegalArgumentException("fromData is greater than toData");
+		}
+		return new TreeRange(fromData, toData);
+	}
+	
+	/**
+	 * Returns a view of the elements strictly less than toData. 
+	 * @param toData high end point of the range, exclusive. 
+	 * @return iterable view of the elements in the range. 
+	 */
+	public Iterable<T> headSet(T toData) {
+		
+		if (toData == null) {
+			throw new NullPointerException("Range end points cannot be null");
+		}
+		return new TreeRange(null, toData);
+	}
+	
+	/**
+	 * Returns a view of the elements greater than or equal to fromData. 
+	 * @param fromData low end point of the range, inclusive. 
+	 * @return iterable view of the elements in the range. 
+	 */
+	public Iterable<T> tailSet(T fromData) {
+		
+		if (fromData == null) {
+			throw new NullPointerException("Range end points cannot be null");
+		}
+		return new TreeRange(fromData, null);
+	}
+	
+	/**
+	 * Pushes the nodes on the path to the first value that is not smaller than 
+	 * 	data whose value is not smaller than data, so the first such value ends 
+	 * 	up on top of the stack. Used by the iterators to seek the start of a range; 
+	 * 	subclasses can override it with a faster comparison. 
+	 * @param data value to seek. 
+	 * @param stack stack of nodes with room for the height of the tree. 
+	 * @param depth number of nodes already on the stack. 
+	 * @return number of nodes on the stack afterwards. 
+	 */
+	protected int pushCeilingPath(T data, AVLNode<T>[] stack, int depth) {
+		
+		AVLNode<T> node = root;
+		int visited = 0;
+		while (node != null) {
+			
+			visited++;
+			if (data.compareTo(node.getData()) <= 0) {
+				stack[depth++] = node;
+				node = node.getLeft();
+			}
+			else {
+				node = node.getRight();
+			}
+		}
+		if (TreeMetrics.ENABLED) {
+			TreeMetrics.lookup(visited);
+		}
+		return depth;
+	}
+	
+	/**
+	 * Range view returned by subSet, headSet and tailSet. The view does not copy
+	 * 	any data, every iterator seeks the tree when it is created, so the view
+	 * 	reflects later changes to the tree. 
+	 */
+	private class TreeRange implements Iterable<T> {
+		
+		// end points of the range, null when unbounded 
+		private final T fromData;
+		private final T toData;
+		
+		/**
+		 * Constructor sets the end points of the range. 
+		 * @param fromData low end point, inclusive, or null. 
+		 * @param toData high end point, exclusive, or null. 
+		 */
+		TreeRange(T fromData, T toData) {
+			
+			this.fromData = fromData;
+			this.toData = toData;
+		}
+		
+		/**
+		 * Creates an iterator over the elements in the range. 
+		 * @return iterator<T> object 
+		 */
+		@Override
+		public Iterator<T> iterator() {
+			
+			return (new TreeIterator(fromData, toData));
+		}
 	}
 		
 	/**
 	 * Private iterator class that implements methods hasNext() and next()
 	 * 	that is required in order for user to traverse through the AVl tree
-	 * 	in an in order traversal manner. The inner iterator class allows it to access
-	 * 	the tree and maintain object oriented principles. 
+	 * 	in an in order traversal manner. The iterator keeps a stack of the nodes
+	 * 	whose data has not been returned yet along the current path, so it only uses
+	 * 	memory proportional to the height of the tree and visits nodes lazily. 
+	 * 	The iterator fails fast when the tree is modified other than through 
+	 * 	its own remove method. 
 	 * @author Adisa Narula 
 	 */
 	private class TreeIterator implements Iterator<T> {
 		
-		// instantiate data feel or iterator 
-		private AVLNode<T> tree;
-		private ArrayList<T> inOrderArray;
+		// nodes on the current path whose data is still to be returned 
+		private AVLNode<T>[] stack;
+		private int depth;
+		
+		// last data returned by next and how many equal values were returned in a row 
 		private T dataReturned;
+		private int equalRun;
+		private boolean canRemove;
+		
+		// modification count of the tree this iterator expects 
+		private int expectedModCount;
 		
-		// keep at counter 
-		int counter;
-		int lastElement;
+		// first value that is no longer returned, null when unbounded 
+		private final T toData;
 		
 		/**
-		 * Constructor sets tree to root of the AVL tree. 
-		 * 	It also calls inOrder method to add data to the array list
-		 * 	in an in order traversal way. 
+		 * Constructor creates a stack big enough for the height of the tree
+		 * 	and pushes the path to the first element of the range. 
+		 * @param fromData first value to return, or null to start at the smallest element. 
+		 * @param toData first value not to return, or null to run to the largest element. 
 		 */
-		public TreeIterator() {
-			
-			this.tree = root;
-			inOrderArray = new ArrayList<T>();
-			
-			// add elements to array 
+		@SuppressWarnings({"unchecked", "rawtypes"})
+		public TreeIterator(T fromData, T toData) {
 			
-			inOrder(tree);
+			stack = (AVLNode<T>[]) new AVLNode[(root == null) ? 1 : root.getHeight() + 1];
+			depth = 0;
+			expectedModCount = modCount;
+			this.toData = toData;
 			
-			// set counter to zero 
-			counter = 0;
-			lastElement = inOrderArray.size();		
-
+			if (fromData == null) {
+				// go all the way to the left 
+				pushLeft(root);
+			}
+			else {
+				seek(fromData);
+			}
+			checkUpperBound();
 		}
 		
 		/**
@@ -585,8 +1310,8 @@ public class AVLTree <T extends Comparable <T>> implements Iterable <T> {
 		@Override
 		public boolean hasNext() {
 			
-			// check size of array to see whether there are any more elements 
-			return (counter != lastElement);
+			// more elements while stack is not empty 
+			return (depth != 0);
 		}
 		
 		/**
@@ -594,53 +1319,124 @@ public class AVLTree <T extends Comparable <T>> implements Iterable <T> {
 		 * 	The method must be called after the hasNext() method every time
 		 * 	it is used. 
 		 * @return the next data in the tree. 
+		 * @throws ConcurrentModificationException if the tree was modified 
+		 * 	since the iterator was created. 
 		 */
 		@Override
 		public T next() {
 			
+			checkForModification();
+			
 			// if no more element throw exception 
 			if (!hasNext()) {
 				throw new NoSuchElementException("No more elements");
 			}
 			
+			// pop next node and push path to its successor 
+			AVLNode<T> node = stack[--depth];
+			stack[depth] = null;
+			pushLeft(node.getRight());
+			checkUpperBound();
+			
+			// count equal values returned in a row so that remove can find its place again 
+			if (dataReturned != null && dataReturned.compareTo(node.getData()) == 0) {
+				equalRun++;
+			}
+			else {
+				equalRun = 1;
+			}
+			
 			// keep data 
-			dataReturned = inOrderArray.get(counter);
-			counter++;
+			dataReturned = node.getData();
+			canRemove = true;
+			
 			// return the next data 
 			return dataReturned;
 		}
 		
 		/**
-		 * Optional remove method not implemented for AVL iterator. 
-		 *  @throws UnsupportedOperationException remove method is not supported in tree iterator. 
+		 * Removes the last data returned by next from the tree. Rotations can
+		 * 	change the shape of the tree, so the iterator seeks its position again 
+		 * 	after the data has been removed. 
+		 * @throws IllegalStateException if next has not been called or 
+		 * 	remove has already been called after the last call to next. 
+		 * @throws ConcurrentModificationException if the tree was modified 
+		 * 	since the iterator was created. 
 		 */
 		@Override
 		public void remove() {
 			
-			throw new UnsupportedOperationException("remove() is not supported.");
+			if (!canRemove) {
+				throw new IllegalStateException("remove() must follow next()");
+			}
+			checkForModification();
+			
+			AVLTree.this.remove(dataReturned);
+			expectedModCount = modCount;
+			canRemove = false;
+			equalRun--;
+			
+			// find the first value not smaller than removed data 
+			while (depth > 0) {
+				stack[--depth] = null;
+			}
+			seek(dataReturned);
+			
+			// skip equal values that were already returned 
+			for (int i = 0; i < equalRun; i++) {
+				AVLNode<T> skipped = stack[--depth];
+				stack[depth] = null;
+				pushLeft(skipped.getRight());
+			}
+			checkUpperBound();
 		}
 		
-		// in order traversal of data in BST 
+		/**
+		 * Pushes the path to the first value that is not smaller than data, 
+		 * 	leaving that value on top of the stack. 
+		 * @param data value to seek. 
+		 */
+		private void seek(T data) {
+			
+			depth = pushCeilingPath(data, stack, depth);
+		}
+		
+		/**
+		 * Empties the stack once the next value is past the end of the range, 
+		 * 	so that hasNext does not need to compare values. 
+		 */
+		private void checkUpperBound() {
+			
+			if (toData != null && depth > 0 && stack[depth - 1].getData().compareTo(toData) >= 0) {
+				while (depth > 0) {
+					stack[--depth] = null;
+				}
+			}
+		}
 		
 		/**
-		 * Recursively performs in order traversal of data in the AVL tree. 
-		 * 	Adds data to array list in order.  
-		 * @param node tree that the method traverse through. 
+		 * Pushes the node and all of its left descendants on the stack. 
+		 * @param node tree that the method goes down. 
 		 */
-		private void inOrder(AVLNode<T> node) {
+		private void pushLeft(AVLNode<T> node) {
 						
-			// if the node is not empty 
-			if (node != null) {
+			// go all the way to the left
+			while (node != null) {
 				
-				// go all the way to the left
-				inOrder(node.getLeft());
-				// add to array 
-				inOrderArray.add(node.getData());
-				// go right 
-				inOrder(node.getRight());
-
+				stack[depth++] = node;
+				node = node.getLeft();
 			}	
 		}
+		
+		/**
+		 * Checks that the tree has not been modified behind the iterator.
+		 * @throws ConcurrentModificationException if the tree was modified. 
+		 */
+		private void checkForModification() {
+			
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+		}
 	}
 }
-
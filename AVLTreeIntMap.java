@@ -0,0 +1,188 @@
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntUnaryOperator;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * AVLTreeIntMap class is a map from keys to ints built like AVLTreeMap, with
+ * 	the value kept in a primitive field of every node, so counting or storing
+ * 	numbers per key does not box them. A missing key has the value 0 for get,
+ * 	addTo and compute. Every operation walks down the tree once and the keys
+ * 	are iterated in ascending order.
+ * @author Adisa Narula
+ * @param <K> type of the keys.
+ */
+public class AVLTreeIntMap<K extends Comparable<K>> extends AVLTree<K> {
+
+	/**
+	 * Constructor creates an empty map.
+	 */
+	public AVLTreeIntMap() {
+
+		super();
+	}
+
+	/**
+	 * Returns the value of a key.
+	 * @param key that is searched for.
+	 * @return value of the key, or 0 if the map does not contain it.
+	 */
+	public int get(K key) {
+
+		return getOrDefault(key, 0);
+	}
+
+	/**
+	 * Returns the value of a key, or a default value when it is missing.
+	 * @param key that is searched for.
+	 * @param defaultValue returned when the map does not contain the key.
+	 * @return value of the key, or defaultValue.
+	 */
+	public int getOrDefault(K key, int defaultValue) {
+
+		Entry<K> entry = entry(findNode(key));
+		return (entry == null) ? defaultValue : entry.value;
+	}
+
+	/**
+	 * Sets the value of a key, adding the key if it is missing.
+	 * @param key whose value is set.
+	 * @param value new value.
+	 * @return previous value of the key, or 0 if it was added.
+	 */
+	public int put(K key, int value) {
+
+		Entry<K> entry = find(key);
+		int previous = entry.value;
+		entry.value = value;
+		return previous;
+	}
+
+	/**
+	 * Adds to the value of a key, starting from 0 if it is missing.
+	 * @param key whose value is increased.
+	 * @param delta amount added.
+	 * @return new value of the key.
+	 */
+	public int addTo(K key, int delta) {
+
+		Entry<K> entry = find(key);
+		entry.value += delta;
+		return entry.value;
+	}
+
+	/**
+	 * Adds a key with the value if it is missing, otherwise sets it to the
+	 * 	function of its value and the given value.
+	 * @param key whose value is merged.
+	 * @param value value of a missing key, and second argument of the function.
+	 * @param function combines the current value with value.
+	 * @return new value of the key.
+	 */
+	public int merge(K key, int value, IntBinaryOperator function) {
+
+		// findOrAdd grows the tree only when it adds the key
+		int size = size();
+		Entry<K> entry = find(key);
+		entry.value = (size() != size) ? value : function.applyAsInt(entry.value, value);
+		return entry.value;
+	}
+
+	/**
+	 * Sets the value of a key to the function of its value, which is 0 when
+	 * 	the key is missing.
+	 * @param key whose value is computed.
+	 * @param function computes the new value from the current value.
+	 * @return new value of the key.
+	 */
+	public int compute(K key, IntUnaryOperator function) {
+
+		Entry<K> entry = find(key);
+		entry.value = function.applyAsInt(entry.value);
+		return entry.value;
+	}
+
+	/**
+	 * Adds a key with the value 0 if it is missing. The key is not added twice.
+	 * @param key that is added.
+	 */
+	@Override
+	public void add(K key) {
+
+		if (key != null) {
+			find(key);
+		}
+	}
+
+	/**
+	 * Passes every key and its value to the action in ascending key order.
+	 * @param action called for every entry.
+	 */
+	public void forEach(ObjIntConsumer<? super K> action) {
+
+		forEachNode(node -> action.accept(node.getData(), entry(node).value));
+	}
+
+	/**
+	 * Creates the entry that findOrAdd links into the tree for a missing key,
+	 * 	with the value 0.
+	 * @param key of the entry.
+	 * @return new entry.
+	 */
+	@Override
+	protected AVLNode<K> newNode(K key) {
+
+		return new Entry<K>(key);
+	}
+
+	/**
+	 * Finds the entry of a key, adding an entry with the value 0 if the key
+	 * 	is missing, in one walk down the tree.
+	 * @param key that is searched for or added.
+	 * @return entry of the key.
+	 */
+	private Entry<K> find(K key) {
+
+		return entry(findOrAdd(key));
+	}
+
+	/**
+	 * Casts a node of this map to its entry. Every node is created by newNode.
+	 * @param node node of the tree, or null.
+	 * @return the node as an entry, or null.
+	 */
+	@SuppressWarnings("unchecked")
+	private Entry<K> entry(AVLNode<K> node) {
+
+		return (Entry<K>) node;
+	}
+
+	/**
+	 * Node that holds a key and its value.
+	 */
+	private static final class Entry<K extends Comparable<K>> extends AVLNode<K> {
+
+		int value;
+
+		/**
+		 * Constructor creates an entry for a key.
+		 * @param key of the entry.
+		 */
+		Entry(K key) {
+
+			super(key);
+		}
+
+		/**
+		 * Copies the key and the value of another entry, when the tree moves
+		 * 	an entry into the place of a removed node.
+		 * @param other entry whose key and value are copied.
+		 */
+		@Override
+		@SuppressWarnings("unchecked")
+		protected void copyData(AVLNode<K> other) {
+
+			super.copyData(other);
+			value = ((Entry<K>) other).value;
+		}
+	}
+}
@@ -0,0 +1,213 @@
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+
+/**
+ * AVLTreeMap class is an AVL tree of keys where every node also holds the
+ * 	value of its key, so a word and its frequency or other data are found with
+ * 	one walk down the tree instead of a tree lookup and a separate map lookup.
+ * 	The tree is balanced by the same code as AVLTree; only the nodes differ.
+ *
+ * 	Every key is kept once. get, put, merge and compute walk down the tree a
+ * 	single time, adding the key where the walk ends if it is not there yet.
+ * 	Values cannot be null, and a function that returns null removes the key,
+ * 	as in java.util.Map. Iterating the map returns the keys in ascending order.
+ * @author Adisa Narula
+ * @param <K> type of the keys.
+ * @param <V> type of the values.
+ */
+public class AVLTreeMap<K extends Comparable<K>, V> extends AVLTree<K> {
+
+	/**
+	 * Constructor creates an empty map.
+	 */
+	public AVLTreeMap() {
+
+		super();
+	}
+
+	/**
+	 * Returns the value of a key.
+	 * @param key that is searched for.
+	 * @return value of the key, or null if the map does not contain it.
+	 */
+	public V get(K key) {
+
+		Entry<K, V> entry = entry(findNode(key));
+		return (entry == null) ? null : entry.value;
+	}
+
+	/**
+	 * Returns the value of a key, or a default value when it is missing.
+	 * @param key that is searched for.
+	 * @param defaultValue returned when the map does not contain the key.
+	 * @return value of the key, or defaultValue.
+	 */
+	public V getOrDefault(K key, V defaultValue) {
+
+		Entry<K, V> entry = entry(findNode(key));
+		return (entry == null) ? defaultValue : entry.value;
+	}
+
+	/**
+	 * Sets the value of a key, adding the key if it is missing.
+	 * @param key whose value is set.
+	 * @param value new value.
+	 * @return previous value of the key, or null if it was added.
+	 * @throws NullPointerException if value is null.
+	 */
+	public V put(K key, V value) {
+
+		requireValue(value);
+		Entry<K, V> entry = find(key);
+		V previous = entry.value;
+		entry.value = value;
+		return previous;
+	}
+
+	/**
+	 * Adds a key with the value if it is missing, otherwise sets it to the
+	 * 	function of its value and the given value, such as Integer::sum to
+	 * 	count words. The key is removed if the function returns null.
+	 * @param key whose value is merged.
+	 * @param value value of a missing key, and second argument of the function.
+	 * @param function combines the current value with value.
+	 * @return new value of the key, or null if it was removed.
+	 * @throws NullPointerException if value is null.
+	 */
+	public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> function) {
+
+		requireValue(value);
+		Entry<K, V> entry = find(key);
+		V merged = (entry.value == null) ? value : function.apply(entry.value, value);
+		return store(entry, merged);
+	}
+
+	/**
+	 * Sets the value of a key to the function of the key and its value, which
+	 * 	is null when the key is missing. The key is removed if the function
+	 * 	returns null.
+	 * @param key whose value is computed.
+	 * @param function computes the new value from the key and the current value.
+	 * @return new value of the key, or null if it was removed or not added.
+	 */
+	public V compute(K key, BiFunction<? super K, ? super V, ? extends V> function) {
+
+		Entry<K, V> entry = find(key);
+		return store(entry, function.apply(key, entry.value));
+	}
+
+	/**
+	 * Adds a key with no value if it is missing. The key is not added twice,
+	 * 	and until a value is set get returns null for it.
+	 * @param key that is added.
+	 */
+	@Override
+	public void add(K key) {
+
+		if (key != null) {
+			find(key);
+		}
+	}
+
+	/**
+	 * Passes every key and its value to the action in ascending key order.
+	 * @param action called for every entry.
+	 */
+	public void forEach(BiConsumer<? super K, ? super V> action) {
+
+		forEachNode(node -> action.accept(node.getData(), entry(node).value));
+	}
+
+	/**
+	 * Creates the entry that findOrAdd links into the tree for a missing key,
+	 * 	with no value.
+	 * @param key of the entry.
+	 * @return new entry.
+	 */
+	@Override
+	protected AVLNode<K> newNode(K key) {
+
+		return new Entry<K, V>(key);
+	}
+
+	/**
+	 * Finds the entry of a key, adding an entry with a null value if the
+	 * 	key is missing, in one walk down the tree.
+	 * @param key that is searched for or added.
+	 * @return entry of the key.
+	 */
+	private Entry<K, V> find(K key) {
+
+		return entry(findOrAdd(key));
+	}
+
+	/**
+	 * Sets the value of an entry, or removes it if the value is null.
+	 * @param entry whose value is set.
+	 * @param value new value, or null.
+	 * @return value.
+	 */
+	private V store(Entry<K, V> entry, V value) {
+
+		if (value == null) {
+			remove(entry.getData());
+		}
+		else {
+			entry.value = value;
+		}
+		return value;
+	}
+
+	/**
+	 * Casts a node of this map to its entry. Every node is created by newNode.
+	 * @param node node of the tree, or null.
+	 * @return the node as an entry, or null.
+	 */
+	@SuppressWarnings("unchecked")
+	private Entry<K, V> entry(AVLNode<K> node) {
+
+		return (Entry<K, V>) node;
+	}
+
+	/**
+	 * Checks that a value is not null, since null means a missing key.
+	 * @param value that is checked.
+	 * @throws NullPointerException if value is null.
+	 */
+	private static void requireValue(Object value) {
+
+		if (value == null) {
+			throw new NullPointerException("Values cannot be null");
+		}
+	}
+
+	/**
+	 * Node that holds a key and its value.
+	 */
+	private static final class Entry<K extends Comparable<K>, V> extends AVLNode<K> {
+
+		V value;
+
+		/**
+		 * Constructor creates an entry for a key.
+		 * @param key of the entry.
+		 */
+		Entry(K key) {
+
+			super(key);
+		}
+
+		/**
+		 * Copies the key and the value of another entry, when the tree moves
+		 * 	an entry into the place of a removed node.
+		 * @param other entry whose key and value are copied.
+		 */
+		@Override
+		@SuppressWarnings("unchecked")
+		protected void copyData(AVLNode<K> other) {
+
+			super.copyData(other);
+			value = ((Entry<K, V>) other).value;
+		}
+	}
+}
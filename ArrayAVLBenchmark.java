@@ -0,0 +1,120 @@
+import java.util.*;
+
+/**
+ * Compares AVLTree and ArrayAVLTree on heap used by the tree structure
+ * 	and on the time of a contains lookup. Both trees hold the same String
+ * 	objects, so the difference in heap is the cost of the nodes only.
+ * 	Usage: java ArrayAVLBenchmark [number of keys]
+ * @author Adisa Narula
+ */
+public class ArrayAVLBenchmark {
+
+	public static void main(String[] args) {
+
+		int count = (args.length > 0) ? Integer.parseInt(args[0]) : 1000000;
+
+		// random lower case keys and lookups that hit half of the time
+		Random random = new Random(42);
+		String[] keys = new String[count];
+		for (int i = 0; i < count; i++) {
+			keys[i] = randomWord(random);
+		}
+		String[] queries = new String[count];
+		for (int i = 0; i < count; i++) {
+			queries[i] = random.nextBoolean() ? keys[random.nextInt(count)] : randomWord(random);
+		}
+
+		System.out.println("Keys: " + count);
+
+		long before = usedMemory();
+		AVLTree<String> objectTree = new AVLTree<String>();
+		for (int i = 0; i < count; i++) {
+			objectTree.add(keys[i]);
+		}
+		long objectBytes = usedMemory() - before;
+		report("AVLTree", objectBytes, count, timeLookups(objectTree, queries));
+		objectTree = null;
+
+		before = usedMemory();
+		ArrayAVLTree<String> arrayTree = new ArrayAVLTree<String>(count);
+		for (int i = 0; i < count; i++) {
+			arrayTree.add(keys[i]);
+		}
+		long arrayBytes = usedMemory() - before;
+		report("ArrayAVLTree", arrayBytes, count, timeLookups(arrayTree, queries));
+	}
+
+	/**
+	 * Runs every query a few times to warm up and returns the
+	 * 	average time of the last round.
+	 */
+	private static double timeLookups(AVLTree<String> tree, String[] queries) {
+
+		long elapsed = 0;
+		int found = 0;
+		for (int round = 0; round < 5; round++) {
+			long start = System.nanoTime();
+			for (int i = 0; i < queries.length; i++) {
+				if (tree.contains(queries[i])) {
+					found++;
+				}
+			}
+			elapsed = System.nanoTime() - start;
+		}
+		consume(found);
+		return (double) elapsed / queries.length;
+	}
+
+	/**
+	 * Same as the AVLTree version, kept separate so that each call site
+	 * 	only ever sees one tree class.
+	 */
+	private static double timeLookups(ArrayAVLTree<String> tree, String[] queries) {
+
+		long elapsed = 0;
+		int found = 0;
+		for (int round = 0; round < 5; round++) {
+			long start = System.nanoTime();
+			for (int i = 0; i < queries.length; i++) {
+				if (tree.contains(queries[i])) {
+					found++;
+				}
+			}
+			elapsed = System.nanoTime() - start;
+		}
+		consume(found);
+		return (double) elapsed / queries.length;
+	}
+
+	private static void report(String name, long bytes, int count, double nanosPerLookup) {
+
+		System.out.printf("%-14s structure: %,12d bytes (%5.1f bytes/key)   contains: %6.1f ns/op%n",
+				name, bytes, (double) bytes / count, nanosPerLookup);
+	}
+
+	private static String randomWord(Random random) {
+
+		char[] word = new char[4 + random.nextInt(8)];
+		for (int i = 0; i < word.length; i++) {
+			word[i] = (char) ('a' + random.nextInt(26));
+		}
+		return new String(word);
+	}
+
+	private static long usedMemory() {
+
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	// keeps lookups from being optimized away
+	private static volatile int sink;
+
+	private static void consume(int value) {
+
+		sink += value;
+	}
+}
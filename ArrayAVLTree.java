@@ -0,0 +1,537 @@
+import java.util.*;
+
+/**
+ * ArrayAVLTree class is an AVL tree with the same add, remove, contains and
+ * 	iterator methods as AVLTree, but it does not create a node object for each
+ * 	element. Data, left child, right child and height of node i are stored at
+ * 	index i of parallel arrays, so a large tree is a handful of arrays instead of
+ * 	millions of small objects. Slots of removed nodes are kept on a free list
+ * 	and reused by later adds.
+ * @author Adisa Narula
+ * @param <T>
+ */
+public class ArrayAVLTree <T extends Comparable <T>> implements Iterable <T> {
+
+	// index zero is never used for a node and stands for an empty subtree
+	private static final int NIL = 0;
+
+	// an AVL tree of height 64 would need more nodes than an array can index
+	private static final int MAX_HEIGHT = 64;
+
+	// parallel arrays that store the nodes, height of a leaf is 1 and of NIL is 0
+	private Object[] data;
+	private int[] left;
+	private int[] right;
+	private byte[] height;
+
+	private int root;
+
+	// first free slot, free slots are linked through the left array
+	private int freeList;
+
+	// first slot that has never been used
+	private int nextSlot;
+
+	private int size;
+	private int modCount;
+
+	// nodes visited by add and remove, reused between calls
+	private final int[] path;
+
+	/**
+	 * Constructor creates an empty tree with room for a few nodes.
+	 */
+	public ArrayAVLTree() {
+
+		this(16);
+	}
+
+	/**
+	 * Constructor creates an empty tree with room for capacity nodes
+	 * 	before the arrays have to grow.
+	 * @param capacity number of nodes to allocate space for.
+	 */
+	public ArrayAVLTree(int capacity) {
+
+		if (capacity < 0) {
+			throw new IllegalArgumentException("Capacity cannot be negative: " + capacity);
+		}
+
+		// one extra slot for NIL
+		data = new Object[capacity + 1];
+		left = new int[capacity + 1];
+		right = new int[capacity + 1];
+		height = new byte[capacity + 1];
+
+		root = NIL;
+		freeList = NIL;
+		nextSlot = 1;
+		size = 0;
+		path = new int[MAX_HEIGHT];
+	}
+
+	/**
+	 * Adds data to the tree. Walks down the tree iteratively with one comparison
+	 * 	per node, links a new node and re-balances the path bottom up. Data equal
+	 * 	to a node is added to its left subtree, like in AVLTree.
+	 * @param data that is inserted into the tree.
+	 */
+	public void add(T data) {
+
+		// if data not null
+		if (data != null) {
+
+			int node = newNode(data);
+			modCount++;
+			size++;
+
+			// empty tree, new node becomes the root
+			if (root == NIL) {
+				root = node;
+				return;
+			}
+
+			int depth = 0;
+			int cmp = 0;
+			int current = root;
+
+			// go down until an empty position is found
+			while (current != NIL) {
+
+				path[depth++] = current;
+				cmp = data.compareTo(dataAt(current));
+				current = (cmp <= 0) ? left[current] : right[current];
+			}
+
+			// link new node to the last node on the path
+			if (cmp <= 0) {
+				left[path[depth - 1]] = node;
+			}
+			else {
+				right[path[depth - 1]] = node;
+			}
+
+			rebalancePath(depth);
+		}
+	}
+
+	/**
+	 * Removes one occurrence of data from the tree. A node with two children takes
+	 * 	the data of its predecessor, which is then unlinked and its slot put on
+	 * 	the free list.
+	 * @param data that is removed from the tree.
+	 */
+	public void remove(T data) {
+
+		// if data not null
+		if (data != null) {
+
+			int depth = 0;
+			int node = root;
+
+			// search for the node that holds the data
+			while (node != NIL) {
+
+				int cmp = data.compareTo(dataAt(node));
+				if (cmp == 0) {
+					break;
+				}
+				path[depth++] = node;
+				node = (cmp < 0) ? left[node] : right[node];
+			}
+
+			// data is not in the tree
+			if (node == NIL) {
+				return;
+			}
+			modCount++;
+			size--;
+
+			// special case for node with two children
+			if (left[node] != NIL && right[node] != NIL) {
+
+				// rightmost node in the left subtree replaces removed data
+				path[depth++] = node;
+				int predecessor = left[node];
+				while (right[predecessor] != NIL) {
+					path[depth++] = predecessor;
+					predecessor = right[predecessor];
+				}
+				this.data[node] = this.data[predecessor];
+				replaceChild(depth, predecessor, left[predecessor]);
+				freeNode(predecessor);
+			}
+
+			// node with at most one child
+			else {
+				replaceChild(depth, node, (left[node] == NIL) ? right[node] : left[node]);
+				freeNode(node);
+			}
+
+			rebalancePath(depth);
+		}
+	}
+
+	/**
+	 * Checks whether data exists in the tree.
+	 * @param data that is searched for in the tree.
+	 * @return true if data is found in the tree.
+	 */
+	public boolean contains(T data) {
+
+		int node = root;
+
+		while (node != NIL) {
+
+			int cmp = data.compareTo(dataAt(node));
+
+			if (cmp < 0) {
+				node = left[node];
+			}
+			else if (cmp > 0) {
+				node = right[node];
+			}
+			else {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the number of elements in the tree.
+	 * @return number of elements in the tree.
+	 */
+	public int size() {
+
+		return size;
+	}
+
+	/**
+	 * Takes a slot from the free list, or the next unused slot,
+	 * 	growing the arrays when they are full.
+	 * @param value data stored in the new node.
+	 * @return index of the new leaf node.
+	 */
+	private int newNode(T value) {
+
+		int node;
+
+		if (freeList != NIL) {
+			node = freeList;
+			freeList = left[node];
+		}
+		else {
+			if (nextSlot == data.length) {
+				grow();
+			}
+			node = nextSlot++;
+		}
+
+		data[node] = value;
+		left[node] = NIL;
+		right[node] = NIL;
+		height[node] = 1;
+		return node;
+	}
+
+	/**
+	 * Puts the slot of a removed node on the free list.
+	 * @param node index of the removed node.
+	 */
+	private void freeNode(int node) {
+
+		// do not keep removed data reachable
+		data[node] = null;
+		right[node] = NIL;
+		height[node] = 0;
+		left[node] = freeList;
+		freeList = node;
+	}
+
+	/**
+	 * Grows the parallel arrays by half of their current length.
+	 */
+	private void grow() {
+
+		int capacity = data.length + (data.length >> 1) + 1;
+		data = Arrays.copyOf(data, capacity);
+		left = Arrays.copyOf(left, capacity);
+		right = Arrays.copyOf(right, capacity);
+		height = Arrays.copyOf(height, capacity);
+	}
+
+	/**
+	 * Returns data stored in a node.
+	 * @param node index of the node.
+	 * @return data of the node.
+	 */
+	@SuppressWarnings("unchecked")
+	private T dataAt(int node) {
+
+		return (T) data[node];
+	}
+
+	/**
+	 * Replaces child of the last node on the path (or the root
+	 * 	when the path is empty) with the replacement subtree.
+	 * @param depth number of nodes on the path.
+	 * @param child node that is being replaced.
+	 * @param replacement subtree that takes the place of child.
+	 */
+	private void replaceChild(int depth, int child, int replacement) {
+
+		if (depth == 0) {
+			root = replacement;
+		}
+		else if (left[path[depth - 1]] == child) {
+			left[path[depth - 1]] = replacement;
+		}
+		else {
+			right[path[depth - 1]] = replacement;
+		}
+	}
+
+	/**
+	 * Walks back up the path after an add or remove, updating the height of
+	 * 	every node and rotating it when its balance factor becomes -2 or 2.
+	 * @param depth number of nodes on the path.
+	 */
+	private void rebalancePath(int depth) {
+
+		for (int i = depth - 1; i >= 0; i--) {
+
+			int node = path[i];
+			int balanced = balance(node);
+
+			if (balanced != node) {
+				replaceChild(i, node, balanced);
+			}
+		}
+	}
+
+	/**
+	 * Updates height of a node and performs the single or double rotation
+	 * 	that its balance factor calls for.
+	 * @param node index of the node.
+	 * @return index of the root of the re-balanced subtree.
+	 */
+	private int balance(int node) {
+
+		updateHeight(node);
+		int factor = height[right[node]] - height[left[node]];
+
+		// imbalance on the left side
+		if (factor == -2) {
+
+			int leftChild = left[node];
+
+			// left right case turns into left left case
+			if (height[right[leftChild]] > height[left[leftChild]]) {
+				left[node] = rotateLeft(leftChild);
+			}
+			return rotateRight(node);
+		}
+
+		// imbalance on the right side
+		else if (factor == 2) {
+
+			int rightChild = right[node];
+
+			// right left case turns into right right case
+			if (height[left[rightChild]] > height[right[rightChild]]) {
+				right[node] = rotateRight(rightChild);
+			}
+			return rotateLeft(node);
+		}
+		return node;
+	}
+
+	/**
+	 * Rotates the subtree to the right, its left child becomes its root.
+	 * @param a index of the subtree root.
+	 * @return index of the new subtree root.
+	 */
+	private int rotateRight(int a) {
+
+		int b = left[a];
+		left[a] = right[b];
+		right[b] = a;
+
+		updateHeight(a);
+		updateHeight(b);
+		return b;
+	}
+
+	/**
+	 * Rotates the subtree to the left, its right child becomes its root.
+	 * @param a index of the subtree root.
+	 * @return index of the new subtree root.
+	 */
+	private int rotateLeft(int a) {
+
+		int b = right[a];
+		right[a] = left[b];
+		left[b] = a;
+
+		updateHeight(a);
+		updateHeight(b);
+		return b;
+	}
+
+	/**
+	 * Resets height of a node from the heights of its children.
+	 * @param node index of the node.
+	 */
+	private void updateHeight(int node) {
+
+		height[node] = (byte) (Math.max(height[left[node]], height[right[node]]) + 1);
+	}
+
+	/**
+	 * Iterator method allows user to traverse the elements of the
+	 * 	tree in order.
+	 * @return iterator<T> object
+	 */
+	@Override
+	public Iterator<T> iterator() {
+
+		return (new ArrayTreeIterator());
+	}
+
+	/**
+	 * Lazy in order iterator that keeps the indexes of the nodes on
+	 * 	the current path on a stack. Fails fast when the tree is modified
+	 * 	other than through its own remove method.
+	 */
+	private class ArrayTreeIterator implements Iterator<T> {
+
+		// nodes on the current path whose data is still to be returned
+		private final int[] stack = new int[MAX_HEIGHT];
+		private int depth;
+
+		// last data returned by next and how many equal values were returned in a row
+		private T dataReturned;
+		private int equalRun;
+		private boolean canRemove;
+
+		// modification count of the tree this iterator expects
+		private int expectedModCount = modCount;
+
+		/**
+		 * Constructor pushes the path to the smallest element.
+		 */
+		ArrayTreeIterator() {
+
+			pushLeft(root);
+		}
+
+		/**
+		 * Checks whether the tree has another element after the last one
+		 * 	returned.
+		 * @return true if there is another element in the tree.
+		 */
+		@Override
+		public boolean hasNext() {
+
+			return (depth != 0);
+		}
+
+		/**
+		 * Returns the next element in ascending order and pushes the path to
+		 * 	its successor.
+		 * @return the next element.
+		 * @throws ConcurrentModificationException if the tree was modified other
+		 * 	than through this iterator.
+		 * @throws NoSuchElementException if there are no more elements.
+		 */
+		@Override
+		public T next() {
+
+			checkForModification();
+
+			// if no more element throw exception
+			if (!hasNext()) {
+				throw new NoSuchElementException("No more elements");
+			}
+
+			// pop next node and push path to its successor
+			int node = stack[--depth];
+			pushLeft(right[node]);
+
+			// count equal values returned in a row so that remove can find its place again
+			T value = dataAt(node);
+			if (dataReturned != null && dataReturned.compareTo(value) == 0) {
+				equalRun++;
+			}
+			else {
+				equalRun = 1;
+			}
+
+			dataReturned = value;
+			canRemove = true;
+			return dataReturned;
+		}
+
+		/**
+		 * Removes the last data returned by next from the tree and seeks
+		 * 	the position of the iterator again.
+		 */
+		@Override
+		public void remove() {
+
+			if (!canRemove) {
+				throw new IllegalStateException("remove() must follow next()");
+			}
+			checkForModification();
+
+			ArrayAVLTree.this.remove(dataReturned);
+			expectedModCount = modCount;
+			canRemove = false;
+			equalRun--;
+
+			// find the first value not smaller than removed data
+			depth = 0;
+			int node = root;
+			while (node != NIL) {
+
+				if (dataReturned.compareTo(dataAt(node)) <= 0) {
+					stack[depth++] = node;
+					node = left[node];
+				}
+				else {
+					node = right[node];
+				}
+			}
+
+			// skip equal values that were already returned
+			for (int i = 0; i < equalRun; i++) {
+				pushLeft(right[stack[--depth]]);
+			}
+		}
+
+		/**
+		 * Pushes the node and all of its left descendants on the stack.
+		 * @param node index of the subtree root.
+		 */
+		private void pushLeft(int node) {
+
+			while (node != NIL) {
+
+				stack[depth++] = node;
+				node = left[node];
+			}
+		}
+
+		/**
+		 * Checks that the tree has not been modified behind the iterator.
+		 * @throws ConcurrentModificationException if the tree was modified.
+		 */
+		private void checkForModification() {
+
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+		}
+	}
+}
@@ -0,0 +1,571 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * Runs the throughput benchmarks of the tree, dictionary and solver hot paths
+ * 	over several dataset sizes and key distributions, with java.util.TreeMap as
+ * 	a baseline, and writes the results as JSON so that runs can be compared to
+ * 	catch regressions.
+ *
+ * 	Every benchmark, size and distribution is measured in its own JVM (a fork)
+ * 	so that code compiled for one benchmark does not slow down the next. A fork
+ * 	runs warmup iterations that are thrown away and then measurement iterations,
+ * 	each of which repeats the benchmark for a fixed time and reports operations
+ * 	per second. The JSON has the same fields as the JSON written by JMH, so the
+ * 	same tools can read it.
+ *
+ * 	Usage: java BenchmarkSuite [options]
+ * 	  -b name,...      benchmarks whose name contains one of the names (default all)
+ * 	  -s size,...      number of keys (default 1000,10000,100000,1000000,5000000)
+ * 	  -d dist,...      key distributions: uniform, sequential, clustered, words (default all)
+ * 	  -wi n            warmup iterations (default 3)
+ * 	  -i n             measurement iterations (default 5)
+ * 	  -t seconds       time of one iteration (default 1)
+ * 	  -f n             forks, 0 runs in this JVM (default 1)
+ * 	  -jvmArgs "args"  options of the forked JVMs
+ * 	  -rff file        JSON result file (default benchmark-results.json)
+ * 	  -l               list the benchmarks
+ * @author Adisa Narula
+ */
+public class BenchmarkSuite {
+
+	// lookups, prefixes and racks run by one invocation of the query benchmarks
+	private static final int QUERIES = 1 << 16;
+	private static final int RACKS = 64;
+	private static final int RACK_LETTERS = 12;
+
+	// prefix of the line a fork prints its iteration scores on
+	private static final String RESULT = "RESULT ";
+
+	// copies of each letter a to z in a bag of word game tiles, used for words and racks
+	private static final int[] TILES = { 9, 2, 2, 4, 12, 2, 3, 2, 9, 1, 1, 4, 2, 6, 8, 2, 1, 6, 4, 6, 4, 2, 2, 1, 2, 1 };
+
+	/**
+	 * Keys of one size and distribution shared by the benchmarks.
+	 */
+	static class Data {
+
+		// keys in generation order, sorted without duplicates, and lookups that hit half of the time
+		final String[] keys;
+		final String[] sorted;
+		final String[] queries;
+		final String[] prefixes;
+		final String[][] racks;
+
+		Data(int size, String distribution) {
+
+			Random random = new Random(42);
+			keys = new String[size];
+			for (int i = 0; i < size; i++) {
+				keys[i] = key(distribution, i, size, random);
+			}
+
+			TreeSet<String> unique = new TreeSet<String>(Arrays.asList(keys));
+			sorted = unique.toArray(new String[unique.size()]);
+
+			queries = new String[QUERIES];
+			prefixes = new String[QUERIES];
+			for (int i = 0; i < QUERIES; i++) {
+				String hit = keys[random.nextInt(size)];
+				queries[i] = random.nextBoolean() ? hit : key(distribution, size + i, size, random) + "~";
+				prefixes[i] = hit.substring(0, Math.max(1, hit.length() - 1 - random.nextInt(Math.max(1, hit.length() / 2))));
+			}
+
+			racks = new String[RACKS][];
+			for (int r = 0; r < RACKS; r++) {
+				racks[r] = new String[RACK_LETTERS];
+				for (int i = 0; i < RACK_LETTERS; i++) {
+					racks[r][i] = String.valueOf(tile(random));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Creates the key with an index in a distribution.
+	 * 	uniform: random lower case strings of 6 to 12 letters.
+	 * 	sequential: numbers in increasing order, so keys are added in sorted order.
+	 * 	clustered: path like keys that share long prefixes.
+	 * 	words: letters drawn with word game frequencies, short like dictionary words.
+	 */
+	private static String key(String distribution, int index, int size, Random random) {
+
+		switch (distribution) {
+
+		case "uniform":
+			char[] letters = new char[6 + random.nextInt(7)];
+			for (int i = 0; i < letters.length; i++) {
+				letters[i] = (char) ('a' + random.nextInt(26));
+			}
+			return new String(letters);
+
+		case "sequential":
+			return String.format("%010d", index);
+
+		case "clustered":
+			return String.format("/dictionary/%02d/entries/%04d/%08d", random.nextInt(16), random.nextInt(256),
+					random.nextInt(Math.max(size, 1) * 4));
+
+		case "words":
+			char[] word = new char[2 + random.nextInt(8)];
+			for (int i = 0; i < word.length; i++) {
+				word[i] = tile(random);
+			}
+			return new String(word);
+
+		default:
+			throw new IllegalArgumentException("Unknown distribution: " + distribution);
+		}
+	}
+
+	/**
+	 * Draws a letter with the frequency of the word game tiles.
+	 */
+	private static char tile(Random random) {
+
+		int tiles = 0;
+		for (int count : TILES) {
+			tiles += count;
+		}
+		int pick = random.nextInt(tiles);
+		for (int i = 0; i < TILES.length; i++) {
+			pick -= TILES[i];
+			if (pick < 0) {
+				return (char) ('a' + i);
+			}
+		}
+		return 'e';
+	}
+
+	/**
+	 * One measured operation. prepare is called before every invocation and
+	 * 	is not timed, run returns the number of operations it did.
+	 */
+	static abstract class Benchmark {
+
+		final String name;
+
+		Benchmark(String name) {
+
+			this.name = name;
+		}
+
+		void setup(Data data) {
+		}
+
+		void prepare() {
+		}
+
+		abstract long run();
+	}
+
+	/**
+	 * Creates every benchmark in the order they are run.
+	 */
+	static List<Benchmark> benchmarks() {
+
+		List<Benchmark> all = new ArrayList<Benchmark>();
+
+		all.add(new Benchmark("AVLTree.add") {
+			String[] keys;
+			AVLTree<String> tree;
+			void setup(Data data) { keys = data.keys; }
+			void prepare() { tree = new AVLTree<String>(); }
+			long run() {
+				for (String key : keys) {
+					tree.add(key);
+				}
+				return keys.length;
+			}
+		});
+		all.add(new Benchmark("TreeMap.add") {
+			String[] keys;
+			TreeMap<String, Boolean> map;
+			void setup(Data data) { keys = data.keys; }
+			void prepare() { map = new TreeMap<String, Boolean>(); }
+			long run() {
+				for (String key : keys) {
+					map.put(key, Boolean.TRUE);
+				}
+				return keys.length;
+			}
+		});
+
+		all.add(new Benchmark("AVLTree.remove") {
+			Data data;
+			AVLTree<String> tree;
+			void setup(Data data) { this.data = data; }
+			void prepare() { tree = AVLTree.fromSorted(data.sorted); }
+			long run() {
+				for (String key : data.keys) {
+					tree.remove(key);
+				}
+				return data.keys.length;
+			}
+		});
+		all.add(new Benchmark("TreeMap.remove") {
+			Data data;
+			TreeMap<String, Boolean> sortedMap;
+			TreeMap<String, Boolean> map;
+			void setup(Data data) {
+				this.data = data;
+				sortedMap = new TreeMap<String, Boolean>();
+				for (String key : data.sorted) {
+					sortedMap.put(key, Boolean.TRUE);
+				}
+			}
+			void prepare() { map = new TreeMap<String, Boolean>(sortedMap); }
+			long run() {
+				for (String key : data.keys) {
+					map.remove(key);
+				}
+				return data.keys.length;
+			}
+		});
+
+		all.add(new Benchmark("AVLTree.contains") {
+			AVLTree<String> tree;
+			String[] queries;
+			void setup(Data data) { tree = AVLTree.fromSorted(data.sorted); queries = data.queries; }
+			long run() {
+				int found = 0;
+				for (String query : queries) {
+					if (tree.contains(query)) {
+						found++;
+					}
+				}
+				sink += found;
+				return queries.length;
+			}
+		});
+		all.add(new Benchmark("TreeMap.contains") {
+			TreeMap<String, Boolean> map;
+			String[] queries;
+			void setup(Data data) { map = treeMap(data.sorted); queries = data.queries; }
+			long run() {
+				int found = 0;
+				for (String query : queries) {
+					if (map.containsKey(query)) {
+						found++;
+					}
+				}
+				sink += found;
+				return queries.length;
+			}
+		});
+
+		all.add(new Benchmark("AVLTree.iterate") {
+			AVLTree<String> tree;
+			void setup(Data data) { tree = AVLTree.fromSorted(data.sorted); }
+			long run() {
+				long count = 0;
+				for (String key : tree) {
+					count += key.length();
+				}
+				sink += (int) count;
+				return tree.size();
+			}
+		});
+		all.add(new Benchmark("TreeMap.iterate") {
+			TreeMap<String, Boolean> map;
+			void setup(Data data) { map = treeMap(data.sorted); }
+			long run() {
+				long count = 0;
+				for (String key : map.keySet()) {
+					count += key.length();
+				}
+				sink += (int) count;
+				return map.size();
+			}
+		});
+
+		all.add(new Benchmark("Dictionary.build") {
+			String[] keys;
+			void setup(Data data) { keys = data.keys; }
+			long run() {
+				sink += new Dictionary(keys).size();
+				return keys.length;
+			}
+		});
+
+		all.add(new Benchmark("AVLString.containsPrefix") {
+			AVLString tree;
+			String[] prefixes;
+			void setup(Data data) { tree = AVLString.fromSortedWords(data.sorted); prefixes = data.prefixes; }
+			long run() {
+				int found = 0;
+				for (String prefix : prefixes) {
+					if (tree.containsPrefix(prefix)) {
+						found++;
+					}
+				}
+				sink += found;
+				return prefixes.length;
+			}
+		});
+		all.add(new Benchmark("TreeMap.containsPrefix") {
+			TreeMap<String, Boolean> map;
+			String[] prefixes;
+			void setup(Data data) { map = treeMap(data.sorted); prefixes = data.prefixes; }
+			long run() {
+				int found = 0;
+				for (String prefix : prefixes) {
+					String ceiling = map.ceilingKey(prefix);
+					if (ceiling != null && ceiling.startsWith(prefix)) {
+						found++;
+					}
+				}
+				sink += found;
+				return prefixes.length;
+			}
+		});
+
+		all.add(new Benchmark("SetLetters.solve") {
+			Dictionary dictionary;
+			String[][] racks;
+			void setup(Data data) { dictionary = new Dictionary(data.sorted); racks = data.racks; }
+			long run() {
+				for (String[] rack : racks) {
+					sink += new SetLetters(rack, dictionary).getArray().size();
+				}
+				return racks.length;
+			}
+		});
+
+		return all;
+	}
+
+	private static TreeMap<String, Boolean> treeMap(String[] sorted) {
+
+		TreeMap<String, Boolean> map = new TreeMap<String, Boolean>();
+		for (String key : sorted) {
+			map.put(key, Boolean.TRUE);
+		}
+		return map;
+	}
+
+	/**
+	 * Runs the warmup and measurement iterations of one benchmark in this JVM.
+	 * @return operations per second of every measurement iteration.
+	 */
+	static double[] measure(Benchmark benchmark, Data data, int warmup, int iterations, double seconds) {
+
+		benchmark.setup(data);
+		long target = (long) (seconds * 1e9);
+		double[] scores = new double[iterations];
+
+		for (int i = -warmup; i < iterations; i++) {
+
+			long operations = 0;
+			long elapsed = 0;
+			while (elapsed < target) {
+				benchmark.prepare();
+				long start = System.nanoTime();
+				operations += benchmark.run();
+				elapsed += System.nanoTime() - start;
+			}
+			if (i >= 0) {
+				scores[i] = operations / (elapsed / 1e9);
+			}
+		}
+		return scores;
+	}
+
+	/**
+	 * Runs one benchmark in a new JVM and reads its scores.
+	 */
+	private static double[] fork(String name, int size, String distribution, int warmup, int iterations,
+			double seconds, List<String> jvmArgs) throws IOException, InterruptedException {
+
+		List<String> command = new ArrayList<String>();
+		command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+		command.addAll(jvmArgs);
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(BenchmarkSuite.class.getName());
+		command.addAll(Arrays.asList("-run", name, String.valueOf(size), distribution, String.valueOf(warmup),
+				String.valueOf(iterations), String.valueOf(seconds)));
+
+		Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+		double[] scores = null;
+		try (BufferedReader output = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+			String line;
+			while ((line = output.readLine()) != null) {
+				if (line.startsWith(RESULT)) {
+					String[] values = line.substring(RESULT.length()).split(",");
+					scores = new double[values.length];
+					for (int i = 0; i < values.length; i++) {
+						scores[i] = Double.parseDouble(values[i]);
+					}
+				}
+				else {
+					System.out.println("  fork: " + line);
+				}
+			}
+		}
+		if (process.waitFor() != 0 || scores == null) {
+			throw new IOException("Fork of " + name + " failed with exit code " + process.exitValue());
+		}
+		return scores;
+	}
+
+	public static void main(String[] args) throws Exception {
+
+		// inside a fork, measure one benchmark and print the scores
+		if (args.length == 7 && args[0].equals("-run")) {
+			for (Benchmark benchmark : benchmarks()) {
+				if (benchmark.name.equals(args[1])) {
+					double[] scores = measure(benchmark, new Data(Integer.parseInt(args[2]), args[3]),
+							Integer.parseInt(args[4]), Integer.parseInt(args[5]), Double.parseDouble(args[6]));
+					StringBuilder line = new StringBuilder(RESULT);
+					for (int i = 0; i < scores.length; i++) {
+						line.append((i == 0) ? "" : ",").append(scores[i]);
+					}
+					System.out.println(line);
+					return;
+				}
+			}
+			throw new IllegalArgumentException("Unknown benchmark: " + args[1]);
+		}
+
+		List<String> names = null;
+		List<Integer> sizes = Arrays.asList(1000, 10000, 100000, 1000000, 5000000);
+		List<String> distributions = Arrays.asList("uniform", "sequential", "clustered", "words");
+		int warmup = 3;
+		int iterations = 5;
+		double seconds = 1.0;
+		int forks = 1;
+		List<String> jvmArgs = new ArrayList<String>();
+		String resultFile = "benchmark-results.json";
+
+		for (int a = 0; a < args.length; a++) {
+			switch (args[a]) {
+			case "-b": names = Arrays.asList(args[++a].split(",")); break;
+			case "-s":
+				sizes = new ArrayList<Integer>();
+				for (String size : args[++a].split(",")) {
+					sizes.add(Integer.parseInt(size));
+				}
+				break;
+			case "-d": distributions = Arrays.asList(args[++a].split(",")); break;
+			case "-wi": warmup = Integer.parseInt(args[++a]); break;
+			case "-i": iterations = Integer.parseInt(args[++a]); break;
+			case "-t": seconds = Double.parseDouble(args[++a]); break;
+			case "-f": forks = Integer.parseInt(args[++a]); break;
+			case "-jvmArgs": jvmArgs = Arrays.asList(args[++a].trim().split("\\s+")); break;
+			case "-rff": resultFile = args[++a]; break;
+			case "-l":
+				for (Benchmark benchmark : benchmarks()) {
+					System.out.println(benchmark.name);
+				}
+				return;
+			default:
+				System.err.println("Unknown option: " + args[a]);
+				System.exit(0);
+			}
+		}
+
+		List<String> results = new ArrayList<String>();
+		System.out.printf("%-26s %10s %-11s %16s %14s%n", "Benchmark", "size", "dist", "ops/s", "error");
+
+		for (Benchmark benchmark : benchmarks()) {
+			if (names != null && names.stream().noneMatch(benchmark.name::contains)) {
+				continue;
+			}
+			for (String distribution : distributions) {
+				for (int size : sizes) {
+
+					// scores of every fork one after the other
+					double[][] raw = new double[Math.max(forks, 1)][];
+					if (forks == 0) {
+						raw[0] = measure(benchmark, new Data(size, distribution), warmup, iterations, seconds);
+					}
+					for (int f = 0; f < forks; f++) {
+						raw[f] = fork(benchmark.name, size, distribution, warmup, iterations, seconds, jvmArgs);
+					}
+
+					double[] summary = summarize(raw);
+					System.out.printf("%-26s %10d %-11s %,16.1f %14.1f%n", benchmark.name, size, distribution,
+							summary[0], summary[1]);
+					results.add(json(benchmark.name, size, distribution, forks, warmup, iterations, seconds, raw, summary));
+				}
+			}
+		}
+
+		Files.write(Paths.get(resultFile), ("[\n" + String.join(",\n", results) + "\n]\n").getBytes(StandardCharsets.UTF_8));
+		System.out.println("Results written to " + resultFile);
+	}
+
+	/**
+	 * Returns the mean score and the half width of its 99.9% confidence
+	 * 	interval, using the normal approximation.
+	 */
+	private static double[] summarize(double[][] raw) {
+
+		int n = 0;
+		double sum = 0;
+		for (double[] fork : raw) {
+			for (double score : fork) {
+				sum += score;
+				n++;
+			}
+		}
+		double mean = sum / n;
+		double squares = 0;
+		for (double[] fork : raw) {
+			for (double score : fork) {
+				squares += (score - mean) * (score - mean);
+			}
+		}
+		double error = (n > 1) ? 3.29 * Math.sqrt(squares / (n - 1)) / Math.sqrt(n) : Double.NaN;
+		return new double[] { mean, error };
+	}
+
+	/**
+	 * Formats one result with the fields of a JMH result.
+	 */
+	private static String json(String name, int size, String distribution, int forks, int warmup, int iterations,
+			double seconds, double[][] raw, double[] summary) {
+
+		StringBuilder rawData = new StringBuilder();
+		for (int f = 0; f < raw.length; f++) {
+			rawData.append((f == 0) ? "[" : ", [");
+			for (int i = 0; i < raw[f].length; i++) {
+				rawData.append((i == 0) ? "" : ", ").append(number(raw[f][i]));
+			}
+			rawData.append(']');
+		}
+
+		return "  {\n"
+				+ "    \"benchmark\": \"" + name + "\",\n"
+				+ "    \"mode\": \"thrpt\",\n"
+				+ "    \"threads\": 1,\n"
+				+ "    \"forks\": " + forks + ",\n"
+				+ "    \"jvm\": \"" + System.getProperty("java.home").replace("\\", "\\\\") + "\",\n"
+				+ "    \"jdkVersion\": \"" + System.getProperty("java.version") + "\",\n"
+				+ "    \"warmupIterations\": " + warmup + ",\n"
+				+ "    \"warmupTime\": \"" + seconds + " s\",\n"
+				+ "    \"measurementIterations\": " + iterations + ",\n"
+				+ "    \"measurementTime\": \"" + seconds + " s\",\n"
+				+ "    \"params\": { \"size\": \"" + size + "\", \"distribution\": \"" + distribution + "\" },\n"
+				+ "    \"primaryMetric\": {\n"
+				+ "      \"score\": " + number(summary[0]) + ",\n"
+				+ "      \"scoreError\": " + number(summary[1]) + ",\n"
+				+ "      \"scoreConfidence\": [" + number(summary[0] - summary[1]) + ", " + number(summary[0] + summary[1]) + "],\n"
+				+ "      \"scoreUnit\": \"ops/s\",\n"
+				+ "      \"rawData\": [" + rawData + "]\n"
+				+ "    }\n"
+				+ "  }";
+	}
+
+	private static String number(double value) {
+
+		return Double.isNaN(value) ? "\"NaN\"" : String.valueOf(value);
+	}
+
+	// keeps results from being optimized away
+	static volatile int sink;
+}
@@ -0,0 +1,1068 @@
+import java.util.*;
+
+/**
+ * ConcurrentAVLTree class is a thread safe AVL tree set based on the optimistic
+ * 	concurrency control of Bronson, Casper, Chafi and Olukotun ("A Practical
+ * 	Concurrent Binary Search Tree", PPoPP 2010).
+ *
+ * 	Readers take no locks. Every node carries a version number that changes
+ * 	whenever a rotation moves the node down and its subtree shrinks. A reader
+ * 	reads the version of a node before looking at its children and checks it
+ * 	again after moving to a child; if it changed, the reader goes back to the
+ * 	parent and tries again. Writers lock only the nodes they change, and a
+ * 	rotation locks the parent, the node and the child that move.
+ *
+ * 	A node with two children is removed by marking it as not present, so that
+ * 	a removal never has to move data between nodes. The node is unlinked later
+ * 	once it has at most one child. Unlike AVLTree, the tree holds each value at
+ * 	most once.
+ * @author Adisa Narula
+ * @param <T>
+ */
+public class ConcurrentAVLTree <T extends Comparable <T>> implements Iterable <T> {
+
+	// version bits: node removed from the tree, and node being rotated down
+	private static final long UNLINKED = 1L;
+	private static final long SHRINKING = 2L;
+	private static final long SHRINK_COUNT_INCREMENT = 4L;
+
+	// number of times a reader spins on a shrinking node before yielding
+	private static final int SPIN_COUNT = 100;
+
+	// results of optimistic attempts
+	private static final int RETRY = -1;
+	private static final int NOT_FOUND = 0;
+	private static final int FOUND = 1;
+
+	// nodeCondition results that are not a new height
+	private static final int UNLINK_REQUIRED = -1;
+	private static final int REBALANCE_REQUIRED = -2;
+	private static final int NOTHING_REQUIRED = -3;
+
+	private static final boolean LEFT = false;
+	private static final boolean RIGHT = true;
+
+	// returned by seek when the attempt has to be retried
+	@SuppressWarnings("rawtypes")
+	private static final Node RETRY_NODE = new Node<>(null, 0, null);
+
+	// the root of the tree is the right child of this holder, which is never rotated
+	private final Node<T> rootHolder = new Node<T>(null, 0, null);
+
+	/**
+	 * Node of the concurrent tree. The data never changes, everything else is
+	 * 	volatile so that readers see the latest links without locking.
+	 */
+	private static final class Node <T> {
+
+		final T data;
+		volatile boolean present;
+		volatile int height;
+		volatile long version;
+		volatile Node<T> parent;
+		volatile Node<T> left;
+		volatile Node<T> right;
+
+		/**
+		 * Constructor creates a node that is present unless data is null.
+		 * @param data that is stored in the node, null for the root holder.
+		 * @param height of the node, 1 for a leaf.
+		 * @param parent node the new node is linked under.
+		 */
+		Node(T data, int height, Node<T> parent) {
+
+			this.data = data;
+			this.present = (data != null);
+			this.height = height;
+			this.parent = parent;
+		}
+
+		/**
+		 * Returns the child in a direction.
+		 * @param dir LEFT or RIGHT.
+		 * @return child, or null if there is none.
+		 */
+		Node<T> child(boolean dir) {
+
+			return (dir == LEFT) ? left : right;
+		}
+
+		/**
+		 * Sets the child in a direction. Called holding the lock of the node.
+		 * @param dir LEFT or RIGHT.
+		 * @param child new child.
+		 */
+		void setChild(boolean dir, Node<T> child) {
+
+			if (dir == LEFT) {
+				left = child;
+			}
+			else {
+				right = child;
+			}
+		}
+
+		/**
+		 * Waits until a rotation that moves this node down has finished,
+		 * 	spinning for a while before yielding the processor.
+		 */
+		void waitUntilNotShrinking() {
+
+			long v = version;
+			if ((v & SHRINKING) != 0) {
+				int i = 0;
+				while (version == v) {
+					if (++i < SPIN_COUNT) {
+						Thread.onSpinWait();
+					}
+					else {
+						Thread.yield();
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Constructor creates an empty tree.
+	 */
+	public ConcurrentAVLTree() {
+
+	}
+
+	/**
+	 * Checks whether data exists in the tree without taking any lock.
+	 * @param data that is searched for in the tree.
+	 * @return true if data is found in the tree.
+	 */
+	public boolean contains(T data) {
+
+		if (data == null) {
+			throw new NullPointerException();
+		}
+
+		while (true) {
+			int result = attemptContains(data, rootHolder, RIGHT, 0L);
+			if (result != RETRY) {
+				return (result == FOUND);
+			}
+		}
+	}
+
+	/**
+	 * Searches the subtree in direction dir of node, which had version nodeV
+	 * 	when the caller moved to it.
+	 */
+	private int attemptContains(T data, Node<T> node, boolean dir, long nodeV) {
+
+		while (true) {
+
+			Node<T> child = node.child(dir);
+			if (node.version != nodeV) {
+				return RETRY;
+			}
+			if (child == null) {
+				return NOT_FOUND;
+			}
+
+			int cmp = data.compareTo(child.data);
+			if (cmp == 0) {
+				return child.present ? FOUND : NOT_FOUND;
+			}
+
+			long childV = child.version;
+			if ((childV & SHRINKING) != 0) {
+				child.waitUntilNotShrinking();
+			}
+			else if (childV != UNLINKED && child == node.child(dir)) {
+
+				// child was reached while node was unchanged
+				if (node.version != nodeV) {
+					return RETRY;
+				}
+				int result = attemptContains(data, child, (cmp < 0) ? LEFT : RIGHT, childV);
+				if (result != RETRY) {
+					return result;
+				}
+			}
+			// otherwise the link changed, read it again
+		}
+	}
+
+	/**
+	 * Adds data to the tree if it is not already there.
+	 * @param data that is inserted into the tree.
+	 * @return true if the tree did not already contain data.
+	 */
+	public boolean add(T data) {
+
+		if (data == null) {
+			throw new NullPointerException();
+		}
+
+		while (true) {
+			int result = attemptAdd(data, rootHolder, RIGHT, 0L);
+			if (result != RETRY) {
+				return (result == NOT_FOUND);
+			}
+		}
+	}
+
+	/**
+	 * Adds data to the subtree in direction dir of node, which had version
+	 * 	nodeV when the caller moved to it. A node with equal data that was
+	 * 	removed as a routing node is marked as present again.
+	 * @return NOT_FOUND if data was added, FOUND if it was present, RETRY if node changed.
+	 */
+	private int attemptAdd(T data, Node<T> node, boolean dir, long nodeV) {
+
+		int result = RETRY;
+		do {
+			Node<T> child = node.child(dir);
+			if (node.version != nodeV) {
+				return RETRY;
+			}
+
+			if (child == null) {
+				result = attemptInsert(data, node, dir, nodeV);
+			}
+			else {
+				int cmp = data.compareTo(child.data);
+				if (cmp == 0) {
+					result = attemptSetPresent(child, true);
+				}
+				else {
+					long childV = child.version;
+					if ((childV & SHRINKING) != 0) {
+						child.waitUntilNotShrinking();
+					}
+					else if (childV != UNLINKED && child == node.child(dir)) {
+						if (node.version != nodeV) {
+							return RETRY;
+						}
+						result = attemptAdd(data, child, (cmp < 0) ? LEFT : RIGHT, childV);
+					}
+				}
+			}
+		} while (result == RETRY);
+
+		return result;
+	}
+
+	/**
+	 * Links a new leaf under node, which must still have the version the
+	 * 	caller saw and no child in direction dir.
+	 */
+	private int attemptInsert(T data, Node<T> node, boolean dir, long nodeV) {
+
+		synchronized (node) {
+			if (node.version != nodeV || node.child(dir) != null) {
+				return RETRY;
+			}
+			node.setChild(dir, new Node<T>(data, 1, node));
+		}
+		fixHeightAndRebalance(node);
+		return NOT_FOUND;
+	}
+
+	/**
+	 * Marks an existing node as present or not present.
+	 * @return FOUND if the node was present before, NOT_FOUND if not, RETRY if it was unlinked.
+	 */
+	private int attemptSetPresent(Node<T> node, boolean present) {
+
+		synchronized (node) {
+			if (node.version == UNLINKED) {
+				return RETRY;
+			}
+			boolean was = node.present;
+			node.present = present;
+			return was ? FOUND : NOT_FOUND;
+		}
+	}
+
+	/**
+	 * Removes data from the tree.
+	 * @param data that is removed from the tree.
+	 * @return true if the tree contained data.
+	 */
+	public boolean remove(T data) {
+
+		if (data == null) {
+			throw new NullPointerException();
+		}
+
+		while (true) {
+			int result = attemptRemove(data, rootHolder, RIGHT, 0L);
+			if (result != RETRY) {
+				return (result == FOUND);
+			}
+		}
+	}
+
+	/**
+	 * Removes data from the subtree in direction dir of node, which had
+	 * 	version nodeV when the caller moved to it.
+	 * @return FOUND if data was removed, NOT_FOUND if it was not present, RETRY if node changed.
+	 */
+	private int attemptRemove(T data, Node<T> node, boolean dir, long nodeV) {
+
+		int result = RETRY;
+		do {
+			Node<T> child = node.child(dir);
+			if (node.version != nodeV) {
+				return RETRY;
+			}
+
+			if (child == null) {
+				return NOT_FOUND;
+			}
+
+			int cmp = data.compareTo(child.data);
+			if (cmp == 0) {
+				result = attemptRemoveNode(node, child);
+			}
+			else {
+				long childV = child.version;
+				if ((childV & SHRINKING) != 0) {
+					child.waitUntilNotShrinking();
+				}
+				else if (childV != UNLINKED && child == node.child(dir)) {
+					if (node.version != nodeV) {
+						return RETRY;
+					}
+					result = attemptRemove(data, child, (cmp < 0) ? LEFT : RIGHT, childV);
+				}
+			}
+		} while (result == RETRY);
+
+		return result;
+	}
+
+	/**
+	 * Unlinks a node with at most one child, or marks a node with two
+	 * 	children as not present. The children are checked again holding the
+	 * 	lock of the node, and if one was unlinked in the meantime the node is
+	 * 	unlinked instead, so no routing node is left with a single child. A
+	 * 	child unlinked after the node was marked is unlinked under the lock of
+	 * 	the node, and the thread that did it repairs the node afterwards.
+	 * @return FOUND if the node was removed, NOT_FOUND if it was not present, RETRY if it was unlinked.
+	 */
+	private int attemptRemoveNode(Node<T> parent, Node<T> node) {
+
+		while (true) {
+
+			if (!node.present) {
+				return NOT_FOUND;
+			}
+
+			// node with two children stays in the tree as a routing node
+			if (node.left != null && node.right != null) {
+				synchronized (node) {
+					if (node.version == UNLINKED) {
+						return RETRY;
+					}
+					if (!node.present) {
+						return NOT_FOUND;
+					}
+					if (node.left != null && node.right != null) {
+						node.present = false;
+						return FOUND;
+					}
+				}
+				// a child was unlinked meanwhile, unlink the node instead
+				continue;
+			}
+
+			synchronized (parent) {
+				if (parent.version == UNLINKED || node.parent != parent) {
+					return RETRY;
+				}
+				synchronized (node) {
+					if (!node.present) {
+						return NOT_FOUND;
+					}
+					if (node.left != null && node.right != null) {
+						node.present = false;
+						return FOUND;
+					}
+					Node<T> splice = (node.left != null) ? node.left : node.right;
+					if (parent.left == node) {
+						parent.left = splice;
+					}
+					else {
+						parent.right = splice;
+					}
+					if (splice != null) {
+						splice.parent = parent;
+					}
+					node.version = UNLINKED;
+					node.present = false;
+				}
+			}
+			fixHeightAndRebalance(parent);
+			return FOUND;
+		}
+	}
+
+	/**
+	 * Iterator over the data in ascending order. The iterator is weakly
+	 * 	consistent: every next is a lock free search for the value after the
+	 * 	last one returned, so it never throws ConcurrentModificationException
+	 * 	and reflects some of the changes made while iterating.
+	 * @return iterator<T> object
+	 */
+	@Override
+	public Iterator<T> iterator() {
+
+		return new SeekIterator(null, true, null);
+	}
+
+	/**
+	 * Returns a weakly consistent view of the data from fromData (inclusive)
+	 * 	to toData (exclusive). Iterating the view takes no locks.
+	 * @param fromData low end point of the range, inclusive.
+	 * @param toData high end point of the range, exclusive.
+	 * @return iterable view of the data in the range.
+	 */
+	public Iterable<T> subSet(T fromData, T toData) {
+
+		if (fromData == null || toData == null) {
+			throw new NullPointerException("Range end points cannot be null");
+		}
+		if (fromData.compareTo(toData) > 0) {
+			throw new IllegalArgumentException("fromData is greater than toData");
+		}
+		return () -> new SeekIterator(fromData, true, toData);
+	}
+
+	/**
+	 * Finds the smallest present value greater than (or equal to, when
+	 * 	inclusive) data, or the smallest value when data is null.
+	 * @return the value or null if there is none.
+	 */
+	private T seek(T data, boolean inclusive) {
+
+		while (true) {
+
+			Node<T> node = attemptSeek(data, inclusive, rootHolder, RIGHT, 0L);
+			if (node == RETRY_NODE) {
+				continue;
+			}
+			if (node == null || node.present) {
+				return (node == null) ? null : node.data;
+			}
+
+			// routing node, look for the next value after it
+			data = node.data;
+			inclusive = false;
+		}
+	}
+
+	/**
+	 * Searches the subtree in direction dir of node, which had version nodeV
+	 * 	when the caller moved to it, for the smallest node after data.
+	 * @return the node, null if there is none, or RETRY_NODE if node changed.
+	 */
+	@SuppressWarnings("unchecked")
+	private Node<T> attemptSeek(T data, boolean inclusive, Node<T> node, boolean dir, long nodeV) {
+
+		while (true) {
+
+			Node<T> child = node.child(dir);
+			if (node.version != nodeV) {
+				return RETRY_NODE;
+			}
+			if (child == null) {
+				return null;
+			}
+
+			int cmp = (data == null) ? -1 : data.compareTo(child.data);
+			long childV = child.version;
+			if ((childV & SHRINKING) != 0) {
+				child.waitUntilNotShrinking();
+			}
+			else if (childV != UNLINKED && child == node.child(dir)) {
+				if (node.version != nodeV) {
+					return RETRY_NODE;
+				}
+
+				// child is a candidate, a smaller one may be in its left subtree
+				if (cmp < 0 || (inclusive && cmp == 0)) {
+					Node<T> found = attemptSeek(data, inclusive, child, LEFT, childV);
+					if (found != RETRY_NODE) {
+						return (found == null) ? child : found;
+					}
+				}
+				else {
+					Node<T> found = attemptSeek(data, inclusive, child, RIGHT, childV);
+					if (found != RETRY_NODE) {
+						return found;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Weakly consistent iterator that seeks the next value on every call.
+	 */
+	private class SeekIterator implements Iterator<T> {
+
+		private T next;
+		private T dataReturned;
+		private final T toData;
+
+		/**
+		 * Constructor seeks the first value of the range.
+		 * @param fromData first value, or null to start at the smallest value.
+		 * @param inclusive whether fromData itself can be returned.
+		 * @param toData first value not returned, or null for no end.
+		 */
+		SeekIterator(T fromData, boolean inclusive, T toData) {
+
+			this.toData = toData;
+			advance(fromData, inclusive);
+		}
+
+		/**
+		 * Checks whether a value was found after the last one returned.
+		 * @return true if there is another value.
+		 */
+		@Override
+		public boolean hasNext() {
+
+			return (next != null);
+		}
+
+		/**
+		 * Returns the value found and seeks the one after it.
+		 * @return the next value.
+		 */
+		@Override
+		public T next() {
+
+			if (next == null) {
+				throw new NoSuchElementException("No more elements");
+			}
+			dataReturned = next;
+			advance(next, false);
+			return dataReturned;
+		}
+
+		/**
+		 * Removes the last value returned from the tree.
+		 * @throws IllegalStateException if next has not been called or
+		 * 	remove has already been called after the last call to next.
+		 */
+		@Override
+		public void remove() {
+
+			if (dataReturned == null) {
+				throw new IllegalStateException("remove() must follow next()");
+			}
+			ConcurrentAVLTree.this.remove(dataReturned);
+			dataReturned = null;
+		}
+
+		/**
+		 * Seeks the first value after from, stopping at the end of the range.
+		 */
+		private void advance(T from, boolean inclusive) {
+
+			next = seek(from, inclusive);
+			if (next != null && toData != null && next.compareTo(toData) >= 0) {
+				next = null;
+			}
+		}
+	}
+
+	/**
+	 * Returns the height of a node, 0 for an empty subtree.
+	 */
+	private static int height(Node<?> node) {
+
+		return (node == null) ? 0 : node.height;
+	}
+
+	/**
+	 * Returns the height a node should have, or whether it needs to be
+	 * 	unlinked or rotated, or nothing at all.
+	 */
+	private int nodeCondition(Node<T> node) {
+
+		Node<T> nL = node.left;
+		Node<T> nR = node.right;
+
+		if ((nL == null || nR == null) && !node.present) {
+			return UNLINK_REQUIRED;
+		}
+
+		int hN = node.height;
+		int hL0 = height(nL);
+		int hR0 = height(nR);
+		int hNRepl = 1 + Math.max(hL0, hR0);
+		int bal = hL0 - hR0;
+
+		if (bal < -1 || bal > 1) {
+			return REBALANCE_REQUIRED;
+		}
+		return (hN != hNRepl) ? hNRepl : NOTHING_REQUIRED;
+	}
+
+	/**
+	 * Walks up from node to the root fixing heights, unlinking routing nodes
+	 * 	and rotating. A rotation that leaves damage deeper down returns that node
+	 * 	first, so the walk does not stop at the first node that needs no change;
+	 * 	nodes that need nothing are only read, without locking. Called with no
+	 * 	locks held.
+	 */
+	private void fixHeightAndRebalance(Node<T> node) {
+
+		while (node != null && node.parent != null) {
+
+			int condition = nodeCondition(node);
+			if (node.version == UNLINKED) {
+				// whoever unlinked the node repairs its parent
+				return;
+			}
+
+			Node<T> next = node.parent;
+			if (condition == NOTHING_REQUIRED) {
+				node = next;
+				continue;
+			}
+
+			if (condition != UNLINK_REQUIRED && condition != REBALANCE_REQUIRED) {
+				synchronized (node) {
+					next = fixHeight(node);
+				}
+			}
+			else {
+				Node<T> nParent = node.parent;
+				next = node;
+				synchronized (nParent) {
+					if (nParent.version != UNLINKED && node.parent == nParent) {
+						synchronized (node) {
+							next = rebalance(nParent, node);
+						}
+					}
+				}
+			}
+
+			// nothing left to do here, keep checking the ancestors
+			node = (next != null) ? next : node.parent;
+		}
+	}
+
+	/**
+	 * Updates height of a locked node.
+	 * @return next node to fix, or null if nothing else needs fixing.
+	 */
+	private Node<T> fixHeight(Node<T> node) {
+
+		int condition = nodeCondition(node);
+		switch (condition) {
+			case REBALANCE_REQUIRED:
+			case UNLINK_REQUIRED:
+				return node;
+			case NOTHING_REQUIRED:
+				return null;
+			default:
+				node.height = condition;
+				return node.parent;
+		}
+	}
+
+	/**
+	 * Rebalances a locked node whose locked parent is nParent.
+	 * @return next node to fix, or null if nothing else needs fixing.
+	 */
+	private Node<T> rebalance(Node<T> nParent, Node<T> n) {
+
+		Node<T> nL = n.left;
+		Node<T> nR = n.right;
+
+		if ((nL == null || nR == null) && !n.present) {
+			if (attemptUnlink(nParent, n)) {
+				return fixHeight(nParent);
+			}
+			return n;
+		}
+
+		int hN = n.height;
+		int hL0 = height(nL);
+		int hR0 = height(nR);
+		int hNRepl = 1 + Math.max(hL0, hR0);
+		int bal = hL0 - hR0;
+
+		if (bal > 1) {
+			return rebalanceToRight(nParent, n, nL, hR0);
+		}
+		else if (bal < -1) {
+			return rebalanceToLeft(nParent, n, nR, hL0);
+		}
+		else if (hNRepl != hN) {
+			n.height = hNRepl;
+			return fixHeight(nParent);
+		}
+		return null;
+	}
+
+	/**
+	 * Unlinks a routing node with at most one child, both locks held.
+	 */
+	private boolean attemptUnlink(Node<T> parent, Node<T> node) {
+
+		Node<T> parentL = parent.left;
+		Node<T> parentR = parent.right;
+		if (parentL != node && parentR != node) {
+			return false;
+		}
+
+		Node<T> left = node.left;
+		Node<T> right = node.right;
+		if (left != null && right != null) {
+			return false;
+		}
+
+		Node<T> splice = (left != null) ? left : right;
+		if (parentL == node) {
+			parent.left = splice;
+		}
+		else {
+			parent.right = splice;
+		}
+		if (splice != null) {
+			splice.parent = parent;
+		}
+
+		node.version = UNLINKED;
+		return true;
+	}
+
+	/**
+	 * Rotates a locked node whose left subtree is too tall, with a single
+	 * 	rotation or a double one, locking the left child and its right child.
+	 * @return next node to fix, or null if nothing else needs fixing.
+	 */
+	private Node<T> rebalanceToRight(Node<T> nParent, Node<T> n, Node<T> nL, int hR0) {
+
+		synchronized (nL) {
+			int hL = nL.height;
+			if (hL - hR0 <= 1) {
+				// retry
+				return n;
+			}
+
+			Node<T> nLR = nL.right;
+			int hLL0 = height(nL.left);
+			int hLR0 = height(nLR);
+			if (hLL0 >= hLR0) {
+				// left left case
+				return rotateRight(nParent, n, nL, hR0, hLL0, nLR, hLR0);
+			}
+
+			synchronized (nLR) {
+				int hLR = nLR.height;
+				if (hLL0 >= hLR) {
+					return rotateRight(nParent, n, nL, hR0, hLL0, nLR, hLR);
+				}
+
+				// left right case
+				int hLRL = height(nLR.left);
+				int b = hLL0 - hLRL;
+				if (b >= -1 && b <= 1) {
+					return rotateRightOverLeft(nParent, n, nL, hR0, hLL0, nLR, hLRL);
+				}
+			}
+
+			// rotate nL first, the next pass rotates n
+			return rebalanceToLeft(n, nL, nLR, hLL0);
+		}
+	}
+
+	/**
+	 * Rotates a locked node whose right subtree is too tall, the mirror of
+	 * 	rebalanceToRight.
+	 * @return next node to fix, or null if nothing else needs fixing.
+	 */
+	private Node<T> rebalanceToLeft(Node<T> nParent, Node<T> n, Node<T> nR, int hL0) {
+
+		synchronized (nR) {
+			int hR = nR.height;
+			if (hL0 - hR >= -1) {
+				// retry
+				return n;
+			}
+
+			Node<T> nRL = nR.left;
+			int hRL0 = height(nRL);
+			int hRR0 = height(nR.right);
+			if (hRR0 >= hRL0) {
+				// right right case
+				return rotateLeft(nParent, n, hL0, nR, nRL, hRL0, hRR0);
+			}
+
+			synchronized (nRL) {
+				int hRL = nRL.height;
+				if (hRR0 >= hRL) {
+					return rotateLeft(nParent, n, hL0, nR, nRL, hRL, hRR0);
+				}
+
+				// right left case
+				int hRLR = height(nRL.right);
+				int b = hRR0 - hRLR;
+				if (b >= -1 && b <= 1) {
+					return rotateLeftOverRight(nParent, n, hL0, nR, nRL, hRR0, hRLR);
+				}
+			}
+
+			// rotate nR first, the next pass rotates n
+			return rebalanceToRight(n, nR, nRL, hRR0);
+		}
+	}
+
+	/**
+	 * Rotates n right under nParent so nL takes its place, with nParent, n
+	 * 	and nL locked. The heights passed are the ones read under the locks.
+	 * @return next node to fix, or null if nothing else needs fixing.
+	 */
+	private Node<T> rotateRight(Node<T> nParent, Node<T> n, Node<T> nL, int hR, int hLL, Node<T> nLR, int hLR) {
+
+		long nodeOVL = n.version;
+		Node<T> nPL = nParent.left;
+
+		// readers that are in n wait or retry until the rotation is done
+		n.version = nodeOVL | SHRINKING;
+
+		n.left = nLR;
+		if (nLR != null) {
+			nLR.parent = n;
+		}
+
+		nL.right = n;
+		n.parent = nL;
+
+		if (nPL == n) {
+			nParent.left = nL;
+		}
+		else {
+			nParent.right = nL;
+		}
+		nL.parent = nParent;
+
+		int hNRepl = 1 + Math.max(hLR, hR);
+		n.height = hNRepl;
+		nL.height = 1 + Math.max(hLL, hNRepl);
+
+		n.version = nodeOVL + SHRINK_COUNT_INCREMENT;
+
+		// report the lowest node that still needs work
+		int balN = hLR - hR;
+		if (balN < -1 || balN > 1) {
+			return n;
+		}
+		if ((nLR == null || hR == 0) && !n.present) {
+			return n;
+		}
+		int balL = hLL - hNRepl;
+		if (balL < -1 || balL > 1) {
+			return nL;
+		}
+		if (hLL == 0 && !nL.present) {
+			return nL;
+		}
+		return fixHeight(nParent);
+	}
+
+	/**
+	 * Rotates n left under nParent so nR takes its place, the mirror of
+	 * 	rotateRight.
+	 * @return next node to fix, or null if nothing else needs fixing.
+	 */
+	private Node<T> rotateLeft(Node<T> nParent, Node<T> n, int hL, Node<T> nR, Node<T> nRL, int hRL, int hRR) {
+
+		long nodeOVL = n.version;
+		Node<T> nPL = nParent.left;
+
+		n.version = nodeOVL | SHRINKING;
+
+		n.right = nRL;
+		if (nRL != null) {
+			nRL.parent = n;
+		}
+
+		nR.left = n;
+		n.parent = nR;
+
+		if (nPL == n) {
+			nParent.left = nR;
+		}
+		else {
+			nParent.right = nR;
+		}
+		nR.parent = nParent;
+
+		int hNRepl = 1 + Math.max(hL, hRL);
+		n.height = hNRepl;
+		nR.height = 1 + Math.max(hNRepl, hRR);
+
+		n.version = nodeOVL + SHRINK_COUNT_INCREMENT;
+
+		int balN = hRL - hL;
+		if (balN < -1 || balN > 1) {
+			return n;
+		}
+		if ((nRL == null || hL == 0) && !n.present) {
+			return n;
+		}
+		int balR = hRR - hNRepl;
+		if (balR < -1 || balR > 1) {
+			return nR;
+		}
+		if (hRR == 0 && !nR.present) {
+			return nR;
+		}
+		return fixHeight(nParent);
+	}
+
+	/**
+	 * Double rotation for a left right imbalance: nLR takes the place of n
+	 * 	with nL and n as its children, with nParent, n, nL and nLR locked.
+	 * @return next node to fix, or null if nothing else needs fixing.
+	 */
+	private Node<T> rotateRightOverLeft(Node<T> nParent, Node<T> n, Node<T> nL, int hR, int hLL, Node<T> nLR, int hLRL) {
+
+		long nodeOVL = n.version;
+		long leftOVL = nL.version;
+
+		Node<T> nPL = nParent.left;
+		Node<T> nLRL = nLR.left;
+		Node<T> nLRR = nLR.right;
+		int hLRR = height(nLRR);
+
+		n.version = nodeOVL | SHRINKING;
+		nL.version = leftOVL | SHRINKING;
+
+		n.left = nLRR;
+		if (nLRR != null) {
+			nLRR.parent = n;
+		}
+
+		nL.right = nLRL;
+		if (nLRL != null) {
+			nLRL.parent = nL;
+		}
+
+		nLR.left = nL;
+		nL.parent = nLR;
+		nLR.right = n;
+		n.parent = nLR;
+
+		if (nPL == n) {
+			nParent.left = nLR;
+		}
+		else {
+			nParent.right = nLR;
+		}
+		nLR.parent = nParent;
+
+		int hNRepl = 1 + Math.max(hLRR, hR);
+		n.height = hNRepl;
+		int hLRepl = 1 + Math.max(hLL, hLRL);
+		nL.height = hLRepl;
+
+		n.version = nodeOVL + SHRINK_COUNT_INCREMENT;
+		nL.version = leftOVL + SHRINK_COUNT_INCREMENT;
+
+		// a routing node left with one child would be damaged below nLR,
+		// off the path that is repaired, so unlink it while nLR and nL are locked
+		if (!nL.present && (hLL == 0 || hLRL == 0) && attemptUnlink(nLR, nL)) {
+			hLRepl = height(nLR.left);
+		}
+		nLR.height = 1 + Math.max(hLRepl, hNRepl);
+
+		int balN = hLRR - hR;
+		if (balN < -1 || balN > 1) {
+			return n;
+		}
+		if ((nLRR == null || hR == 0) && !n.present) {
+			return n;
+		}
+		int balLR = hLRepl - hNRepl;
+		if (balLR < -1 || balLR > 1) {
+			return nLR;
+		}
+		return fixHeight(nParent);
+	}
+
+	/**
+	 * Double rotation for a right left imbalance, the mirror of
+	 * 	rotateRightOverLeft.
+	 * @return next node to fix, or null if nothing else needs fixing.
+	 */
+	private Node<T> rotateLeftOverRight(Node<T> nParent, Node<T> n, int hL, Node<T> nR, Node<T> nRL, int hRR, int hRLR) {
+
+		long nodeOVL = n.version;
+		long rightOVL = nR.version;
+
+		Node<T> nPL = nParent.left;
+		Node<T> nRLL = nRL.left;
+		Node<T> nRLR = nRL.right;
+		int hRLL = height(nRLL);
+
+		n.version = nodeOVL | SHRINKING;
+		nR.version = rightOVL | SHRINKING;
+
+		n.right = nRLL;
+		if (nRLL != null) {
+			nRLL.parent = n;
+		}
+
+		nR.left = nRLR;
+		if (nRLR != null) {
+			nRLR.parent = nR;
+		}
+
+		nRL.right = nR;
+		nR.parent = nRL;
+		nRL.left = n;
+		n.parent = nRL;
+
+		if (nPL == n) {
+			nParent.left = nRL;
+		}
+		else {
+			nParent.right = nRL;
+		}
+		nRL.parent = nParent;
+
+		int hNRepl = 1 + Math.max(hL, hRLL);
+		n.height = hNRepl;
+		int hRRepl = 1 + Math.max(hRLR, hRR);
+		nR.height = hRRepl;
+
+		n.version = nodeOVL + SHRINK_COUNT_INCREMENT;
+		nR.version = rightOVL + SHRINK_COUNT_INCREMENT;
+
+		// same as in rotateRightOverLeft for a damaged routing node nR
+		if (!nR.present && (hRR == 0 || hRLR == 0) && attemptUnlink(nRL, nR)) {
+			hRRepl = height(nRL.right);
+		}
+		nRL.height = 1 + Math.max(hNRepl, hRRepl);
+
+		int balN = hRLL - hL;
+		if (balN < -1 || balN > 1) {
+			return n;
+		}
+		if ((nRLL == null || hL == 0) && !n.present) {
+			return n;
+		}
+		int balRL = hRRepl - hNRepl;
+		if (balRL < -1 || balRL > 1) {
+			return nRL;
+		}
+		return fixHeight(nParent);
+	}
+}
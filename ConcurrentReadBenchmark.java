@@ -0,0 +1,133 @@
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Measures contains throughput as reader threads are added while one writer
+ * 	thread keeps adding and removing keys. ConcurrentAVLTree is compared with
+ * 	an AVLTree guarded by a read/write lock, which is how the tree was shared
+ * 	between threads before.
+ * 	Usage: java ConcurrentReadBenchmark [number of keys] [seconds per run]
+ * @author Adisa Narula
+ */
+public class ConcurrentReadBenchmark {
+
+	public static void main(String[] args) throws InterruptedException {
+
+		int count = (args.length > 0) ? Integer.parseInt(args[0]) : 1000000;
+		double seconds = (args.length > 1) ? Double.parseDouble(args[1]) : 2.0;
+		int cores = Runtime.getRuntime().availableProcessors();
+
+		ConcurrentAVLTree<Integer> concurrentTree = new ConcurrentAVLTree<Integer>();
+		AVLTree<Integer> lockedTree = new AVLTree<Integer>();
+		ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+		// even keys are loaded, the writer toggles odd keys
+		Random random = new Random(42);
+		for (int i = 0; i < count; i++) {
+			int key = 2 * random.nextInt(count);
+			concurrentTree.add(key);
+			lockedTree.add(key);
+		}
+
+		System.out.println("Keys: " + count + ", cores: " + cores + ", one writer thread");
+
+		for (int readers = 1; readers <= cores; readers = (readers < cores && readers * 2 > cores) ? cores : readers * 2) {
+
+			double concurrent = run(readers, seconds, count,
+					key -> concurrentTree.contains(key),
+					key -> {
+						if (!concurrentTree.add(key)) {
+							concurrentTree.remove(key);
+						}
+					});
+
+			double locked = run(readers, seconds, count,
+					key -> {
+						lock.readLock().lock();
+						try {
+							return lockedTree.contains(key);
+						}
+						finally {
+							lock.readLock().unlock();
+						}
+					},
+					key -> {
+						lock.writeLock().lock();
+						try {
+							if (lockedTree.contains(key)) {
+								lockedTree.remove(key);
+							}
+							else {
+								lockedTree.add(key);
+							}
+						}
+						finally {
+							lock.writeLock().unlock();
+						}
+					});
+
+			System.out.printf("%2d reader(s)   ConcurrentAVLTree %,12.0f reads/s   locked AVLTree %,12.0f reads/s%n",
+					readers, concurrent, locked);
+		}
+	}
+
+	interface Read {
+		boolean contains(int key);
+	}
+
+	interface Write {
+		void toggle(int key);
+	}
+
+	/**
+	 * Runs the readers and one writer for the given time.
+	 * @return total reads per second over all readers.
+	 */
+	private static double run(int readers, double seconds, int count, Read read, Write write) throws InterruptedException {
+
+		AtomicBoolean running = new AtomicBoolean(true);
+		LongAdder reads = new LongAdder();
+		List<Thread> threads = new ArrayList<Thread>();
+
+		for (int r = 0; r < readers; r++) {
+			final int seed = r;
+			threads.add(new Thread(() -> {
+				Random random = new Random(seed);
+				long done = 0;
+				int found = 0;
+				while (running.get()) {
+					for (int i = 0; i < 1024; i++) {
+						if (read.contains(random.nextInt(2 * count))) {
+							found++;
+						}
+					}
+					done += 1024;
+				}
+				reads.add(done);
+				sink += found;
+			}));
+		}
+		threads.add(new Thread(() -> {
+			Random random = new Random(-1);
+			while (running.get()) {
+				write.toggle(2 * random.nextInt(count) + 1);
+			}
+		}));
+
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		long start = System.nanoTime();
+		Thread.sleep((long) (seconds * 1000));
+		running.set(false);
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		return reads.sum() / ((System.nanoTime() - start) / 1e9);
+	}
+
+	// keeps lookups from being optimized away
+	private static volatile int sink;
+}
@@ -1,5 +1,8 @@
 
 
+import java.util.Arrays;
+import java.util.List;
+
 /**
  * Searches for words in the dictionary through recursive implementation of binary search 
  * 	loads the dictionary that user enters in the command line and into binary search tree
@@ -13,6 +16,19 @@ public class Dictionary {
 	
 	private AVLString dictionaryWordTree; 
 	
+	// the same words in sorted order without duplicates, walked by prefix cursors; 
+	// the strings are shared with the tree, so this costs one reference per word 
+	private String[] sortedWords;
+	
+	// index of the words used instead of the tree, such as a memory mapped index file 
+	private WordIndex wordIndex;
+	
+	// words grouped by sorted letters, built the first time it is needed 
+	private volatile SignatureIndex signatureIndex;
+	
+	// bloom filter of the word prefixes checked before searching, null when not built 
+	private volatile PrefixFilter prefixFilter;
+	
 
 	/**
 	 * Constructor creates a new string array and stores the list of 
@@ -21,55 +37,165 @@ public class Dictionary {
 	 */
 	public Dictionary(String[] dictionary) {
 	
-		dictionaryWordTree = new AVLString();
-				
-		// add all the words to binary search tree 
-		// in balance tree 
-	    
-//		for(int i = 0; i <dictionary.length; i++){
-//			
-//			dictionaryWordTree.add(dictionary[i]);
-//		}
-		
-		insertBalanceWords(dictionary, 0, dictionary.length-1);
-
-		//System.out.println(dictionaryWordTree.toString());
+		sortedWords = sortedUnique(dictionary);
+		
+		// the balanced tree is built directly from the sorted words in linear time 
+		dictionaryWordTree = AVLString.fromSortedWords(sortedWords);
 	}
 	
 	/**
-	 * Inserts the words in the dictionary into tree structure and makes sure that
-	 * 	the tree is not stored as a linked list because the words in the dictionary
-	 * 	are passed in in alphabetical order. 
-	 * @param dictionary array list containing words found the in dictionary 
-	 * @param first position of the first word in the dictionary 
-	 * @param last position of the last word in the dictionary 
+	 * Constructor creates a dictionary from a tree that already holds the words, 
+	 * 	such as one built while the dictionary file was being read. The sorted 
+	 * 	words are taken from the tree, so no separate copy of the file is kept; 
+	 * 	the array for prefix cursors only refers to the strings in the tree. 
+	 * @param tree tree of the words in the dictionary 
 	 */
-	private void insertBalanceWords(String[] dictionary, int first, int last) {
+	public Dictionary(AVLString tree) {
 		
-		// set middle element to one
+		dictionaryWordTree = tree;
 		
-		// method is similar to binary search method 
-		int mid = 0;
-		// one element to add 
-		if (first == last) {
-			
-			dictionaryWordTree.add(dictionary[first]);
+		// in order walk of the tree, skipping duplicates 
+		String[] words = new String[tree.size()];
+		int unique = 0;
+		for (String word : tree) {
+			if (unique == 0 || !words[unique - 1].equals(word)) {
+				words[unique++] = word;
+			}
 		}
+		if (unique == words.length) {
+			sortedWords = words;
+		}
+		else {
+			// words that were not sorted can leave duplicates in the tree, build it again without them 
+			sortedWords = Arrays.copyOf(words, unique);
+			dictionaryWordTree = AVLString.fromSortedWords(sortedWords);
+		}
+	}
+	
+	/**
+	 * Copies the words without nulls and duplicates in sorted order. Words in 
+	 * 	the dictionary file are normally in alphabetical order already, so the 
+	 * 	copy is only sorted when they are not. 
+	 * @param dictionary words from the dictionary file 
+	 * @return sorted words without duplicates 
+	 */
+	private static String[] sortedUnique(String[] dictionary) {
+		
+		String[] words = new String[dictionary.length];
+		int count = 0;
+		boolean sorted = true;
 		
-		// two elements 
-		else if (first + 1 == last) {
-			dictionaryWordTree.add(dictionary[first]);
-			dictionaryWordTree.add(dictionary[last]);
+		for (int i = 0; i < dictionary.length; i++) {
+			if (dictionary[i] != null) {
+				if (count > 0 && words[count - 1].compareTo(dictionary[i]) > 0) {
+					sorted = false;
+				}
+				words[count++] = dictionary[i];
+			}
+		}
+		if (!sorted) {
+			Arrays.sort(words, 0, count);
 		}
 		
-		else {
-			
-			// keep updating mid and recursively add data to the tree 
-			mid = (first + last) / 2;
-			dictionaryWordTree.add(dictionary[mid]);
-			insertBalanceWords(dictionary, first, mid - 1);
-			insertBalanceWords(dictionary, mid + 1 , last);
+		// remove duplicates, which are next to each other now 
+		int unique = 0;
+		for (int i = 0; i < count; i++) {
+			if (unique == 0 || !words[unique - 1].equals(words[i])) {
+				words[unique++] = words[i];
+			}
 		}
+		return (unique == words.length) ? words : Arrays.copyOf(words, unique);
+	}
+	
+	/**
+	 * Constructor creates a dictionary that searches an index of the words 
+	 * 	directly, without building a tree, such as a memory mapped index file 
+	 * 	opened with MappedDictionary.open or a PackedDictionary. 
+	 * @param wordIndex index of the words 
+	 */
+	public Dictionary(WordIndex wordIndex) {
+		
+		this.wordIndex = wordIndex;
+	}
+	
+	/**
+	 * Creates a cursor that walks the dictionary one letter at a time, so that 
+	 * 	a search that builds words letter by letter does not start every lookup
+	 * 	from the root. 
+	 * @return cursor positioned at the empty prefix. 
+	 */
+	public PrefixCursor cursor() {
+		
+		return new PrefixCursor(sortedWords, this);
+	}
+	
+	/**
+	 * Returns the words in the dictionary that use exactly the given letters. 
+	 * @param letters letters of the words, in any order. 
+	 * @return anagrams of the letters in sorted order. 
+	 */
+	public List<String> anagrams(String letters) {
+		
+		return signatureIndex().anagrams(letters);
+	}
+	
+	/**
+	 * Returns the words in the dictionary that can be made from some of the 
+	 * 	letters, by looking up letter signatures instead of trying permutations. 
+	 * @param letters letters that can be used, in any order. 
+	 * @param minLength shortest word to return. 
+	 * @return words in sorted order without duplicates. 
+	 */
+	public List<String> wordsFromLetters(String letters, int minLength) {
+		
+		return signatureIndex().wordsFromLetters(letters, minLength);
+	}
+	
+	/**
+	 * Returns the signature index, building it on first use so that 
+	 * 	dictionaries that are never asked for anagrams do not pay for it. 
+	 * @return index of the words by letter signature. 
+	 */
+	private SignatureIndex signatureIndex() {
+		
+		SignatureIndex index = signatureIndex;
+		if (index == null) {
+			synchronized (this) {
+				index = signatureIndex;
+				if (index == null) {
+					Iterable<String> words = (sortedWords != null) ? Arrays.asList(sortedWords) : wordIndex;
+					index = new SignatureIndex(words);
+					signatureIndex = index;
+				}
+			}
+		}
+		return index;
+	}
+	
+	/**
+	 * Builds a bloom filter over every prefix of the words up to maxLength letters, which 
+	 * 	prefixDictionary and checkEquals check first, so most prefixes and words that are not 
+	 * 	in the dictionary are rejected without searching the tree or index. 
+	 * @param maxLength longest prefix put in the filter 
+	 * @param bitsPerPrefix bits of the filter per prefix, 10 gives about 1% false positives 
+	 * @return the filter, for its size and false positive rate 
+	 * @throws IllegalArgumentException if maxLength or bitsPerPrefix is less than one 
+	 */
+	public PrefixFilter buildPrefixFilter(int maxLength, int bitsPerPrefix) {
+		
+		Iterable<String> words = (wordIndex != null) ? wordIndex : Arrays.asList(sortedWords);
+		prefixFilter = PrefixFilter.of(words, maxLength, bitsPerPrefix);
+		return prefixFilter;
+	}
+	
+	/**
+	 * Builds a bloom filter over the prefixes of the words with the default length and size. 
+	 * @return the filter 
+	 * @see #buildPrefixFilter(int, int)
+	 */
+	public PrefixFilter buildPrefixFilter() {
+		
+		return buildPrefixFilter(PrefixFilter.DEFAULT_MAX_LENGTH, PrefixFilter.DEFAULT_BITS_PER_PREFIX);
 	}
 	
 	/**
@@ -80,11 +206,115 @@ public class Dictionary {
 	 */
 	public boolean prefixDictionary(String wordToSearch) {
 		
+		// no word starts with a prefix the filter rejects 
+		PrefixFilter filter = prefixFilter;
+		if (filter != null && !filter.mightContainPrefix(wordToSearch)) {
+			return false;
+		}
+		
+		// search the index when there is no tree 
+		if (wordIndex != null) {
+			return wordIndex.prefixDictionary(wordToSearch);
+		}
+		
 		// true if word is in the dictionary 
 		return(dictionaryWordTree.containsPrefix(wordToSearch));
 		
 	}
 	
+	/**
+	 * Checks whether any word starts with a prefix that the caller builds in 
+	 * 	place, such as the letters of a prefix cursor. A prefix the filter 
+	 * 	rejects is answered without creating a string; otherwise the prefix 
+	 * 	is copied to a string and searched. 
+	 * @param prefix that is searched for in the dictionary. 
+	 * @return true if dictionary contains the prefix. 
+	 */
+	public boolean prefixDictionary(CharSequence prefix) {
+		
+		PrefixFilter filter = prefixFilter;
+		if (filter != null && !filter.mightContainPrefix(prefix)) {
+			return false;
+		}
+		String wordToSearch = prefix.toString();
+		if (wordIndex != null) {
+			return wordIndex.prefixDictionary(wordToSearch);
+		}
+		return(dictionaryWordTree.containsPrefix(wordToSearch));
+	}
+	
+	/**
+	 * Returns the words in the dictionary that start with the prefix, in 
+	 * 	alphabetical order. Words are read from the tree lazily so the 
+	 * 	cost is O(logN) plus the number of words read. 
+	 * @param prefix that the words start with. 
+	 * @return iterable view of the words starting with the prefix. 
+	 */
+	public Iterable<String> wordsWithPrefix(String prefix) {
+		
+		if (wordIndex != null) {
+			return wordIndex.wordsWithPrefix(prefix);
+		}
+		return (dictionaryWordTree.prefixRange(prefix));
+	}
+	
+	/**
+	 * Returns the words in the dictionary from one word (inclusive) to another 
+	 * 	(exclusive), in alphabetical order. Words are read lazily. The end points 
+	 * 	are compared in the order of the words: String order for the tree and 
+	 * 	code point order, the order of the UTF-8 bytes, for a word index. The two 
+	 * 	only differ for characters outside the Basic Multilingual Plane. 
+	 * @param from low end point of the range, inclusive. 
+	 * @param to high end point of the range, exclusive. 
+	 * @return iterable view of the words in the range. 
+	 * @throws IllegalArgumentException if from is greater than to. 
+	 */
+	public Iterable<String> wordsInRange(String from, String to) {
+		
+		if (wordIndex != null) {
+			if (compareCodePoints(from, to) > 0) {
+				throw new IllegalArgumentException("from is greater than to");
+			}
+			return wordIndex.wordsInRange(from, to);
+		}
+		if (from.compareTo(to) > 0) {
+			throw new IllegalArgumentException("from is greater than to");
+		}
+		return (dictionaryWordTree.subSet(from, to));
+	}
+	
+	/**
+	 * Compares two strings by code point, which is the order of their UTF-8 bytes 
+	 * 	compared as unsigned values, the order a word index keeps its words in. 
+	 * @param a first string. 
+	 * @param b second string. 
+	 * @return negative, zero or positive as a is less than, equal to or greater than b. 
+	 */
+	private static int compareCodePoints(String a, String b) {
+		
+		int i = 0;
+		int j = 0;
+		while (i < a.length() && j < b.length()) {
+			int ca = a.codePointAt(i);
+			int cb = b.codePointAt(j);
+			if (ca != cb) {
+				return Integer.compare(ca, cb);
+			}
+			i += Character.charCount(ca);
+			j += Character.charCount(cb);
+		}
+		return Integer.compare(a.length() - i, b.length() - j);
+	}
+	
+	/**
+	 * Returns the number of words in the dictionary. 
+	 * @return number of words. 
+	 */
+	public int size() {
+		
+		return (wordIndex != null) ? wordIndex.size() : sortedWords.length;
+	}
+	
 	/**
 	 * Searches the AVL string tree structure that contains the dictionary
 	 * 	to see whether the tree contains specific word that is passed in to the method. 
@@ -93,9 +323,40 @@ public class Dictionary {
 	 */
 	public boolean checkEquals(String wordToSearch) {
 		
+		// a word is a prefix of itself, so the filter rejects words that are not there either 
+		PrefixFilter filter = prefixFilter;
+		if (filter != null && !filter.mightContainPrefix(wordToSearch)) {
+			return false;
+		}
+		
+		// search the index when there is no tree 
+		if (wordIndex != null) {
+			return wordIndex.checkEquals(wordToSearch);
+		}
+		
 		// true if word is in the dictionary 
 		return (dictionaryWordTree.contains(wordToSearch));
 	
 	}
 	
+	/**
+	 * Checks whether a word that the caller builds in place, such as the 
+	 * 	letters of a prefix cursor, is in the dictionary. A word the filter 
+	 * 	rejects is answered without creating a string. 
+	 * @param word that is searched for in the dictionary. 
+	 * @return true if dictionary contains the word. 
+	 */
+	public boolean checkEquals(CharSequence word) {
+		
+		PrefixFilter filter = prefixFilter;
+		if (filter != null && !filter.mightContainPrefix(word)) {
+			return false;
+		}
+		String wordToSearch = word.toString();
+		if (wordIndex != null) {
+			return wordIndex.checkEquals(wordToSearch);
+		}
+		return (dictionaryWordTree.contains(wordToSearch));
+	}
+	
 }
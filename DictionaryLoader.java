@@ -0,0 +1,378 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * DictionaryLoader class loads a dictionary text file with one word per line
+ * 	straight into the tree. The file is read through a FileChannel in 64 KiB
+ * 	blocks into a heap buffer that is reused for the whole file, and each block
+ * 	is decoded as UTF-8 in bulk. Lines are split on the decoded characters,
+ * 	trimmed, and blank lines and repeated words are skipped. Each word is
+ * 	handed to the tree builder as soon as it is decoded, so the words are
+ * 	never collected in a list or array first.
+ *
+ * 	Every load records the number of bytes and words read and the time taken.
+ * 	Files can be loaded into the tree or into a PackedDictionary, read as an
+ * 	array of words for other formats such as a MappedDictionary index, and
+ * 	word frequency files can be loaded into an AVLTreeLongMap.
+ * @author Adisa Narula
+ */
+public class DictionaryLoader {
+
+	// bytes read from the file at a time
+	private static final int BUFFER_BYTES = 1 << 16;
+
+	private long bytes;
+	private long words;
+	private long nanos;
+
+	/**
+	 * Loads a dictionary text file encoded in UTF-8.
+	 * @param file dictionary text file.
+	 * @return dictionary of the words in the file.
+	 * @throws IOException if the file cannot be read or is not valid UTF-8.
+	 */
+	public Dictionary load(Path file) throws IOException {
+
+		long start = System.nanoTime();
+		bytes = 0;
+		words = 0;
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+
+			AVLString tree = AVLString.fromSortedWords(new LineIterator(channel, true));
+			Dictionary dictionary = new Dictionary(tree);
+			nanos = System.nanoTime() - start;
+			return dictionary;
+		}
+		catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * Loads a dictionary text file encoded in UTF-8 into a PackedDictionary,
+	 * 	which keeps all the words in one byte array instead of a tree.
+	 * @param file dictionary text file.
+	 * @return dictionary that searches the packed words.
+	 * @throws IOException if the file cannot be read or is not valid UTF-8.
+	 */
+	public Dictionary loadPacked(Path file) throws IOException {
+
+		long start = System.nanoTime();
+		bytes = 0;
+		words = 0;
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+
+			Dictionary dictionary = new Dictionary(PackedDictionary.fromSortedWords(new LineIterator(channel, true)));
+			nanos = System.nanoTime() - start;
+			return dictionary;
+		}
+		catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * Reads the words of a dictionary text file encoded in UTF-8 into an array,
+	 * 	with the same trimming and skipping of blank lines and repeated words as
+	 * 	load, for formats that are built from all the words at once.
+	 * @param file dictionary text file.
+	 * @return words in the order of the file.
+	 * @throws IOException if the file cannot be read or is not valid UTF-8.
+	 */
+	public String[] readWords(Path file) throws IOException {
+
+		long start = System.nanoTime();
+		bytes = 0;
+		words = 0;
+		ArrayList<String> list = new ArrayList<String>();
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+
+			for (Iterator<String> lines = new LineIterator(channel, true); lines.hasNext();) {
+				list.add(lines.next());
+			}
+			nanos = System.nanoTime() - start;
+			return list.toArray(new String[list.size()]);
+		}
+		catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * Loads word frequencies from a UTF-8 text file with a word and its count
+	 * 	on every line, separated by white space. A line with only a word counts
+	 * 	once, and the counts of a word that appears on several lines are added,
+	 * 	each with a single walk down the map.
+	 * @param file frequency text file.
+	 * @return frequency of every word in the file.
+	 * @throws IOException if the file cannot be read, is not valid UTF-8 or has a count that is not a number.
+	 */
+	public AVLTreeLongMap<String> loadFrequencies(Path file) throws IOException {
+
+		long start = System.nanoTime();
+		bytes = 0;
+		words = 0;
+		AVLTreeLongMap<String> frequencies = new AVLTreeLongMap<String>();
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+
+			// every line counts, even one equal to the line before
+			for (Iterator<String> lines = new LineIterator(channel, false); lines.hasNext();) {
+
+				String line = lines.next();
+				int space = 0;
+				while (space < line.length() && !Character.isWhitespace(line.charAt(space))) {
+					space++;
+				}
+				try {
+					long count = (space == line.length()) ? 1 : Long.parseLong(line.substring(space).trim());
+					frequencies.addTo(line.substring(0, space), count);
+				}
+				catch (NumberFormatException e) {
+					throw new IOException("Count is not a number: " + line, e);
+				}
+			}
+			nanos = System.nanoTime() - start;
+			return frequencies;
+		}
+		catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * Returns the number of bytes read by the last load.
+	 * @return bytes read.
+	 */
+	public long bytesRead() {
+
+		return bytes;
+	}
+
+	/**
+	 * Returns the number of words read by the last load, without blank lines
+	 * 	and, for dictionaries, repeated words. For frequency files this is the
+	 * 	number of lines with a word.
+	 * @return words read.
+	 */
+	public long wordsRead() {
+
+		return words;
+	}
+
+	/**
+	 * Returns how long the last load took, including building the tree.
+	 * @return load time in nanoseconds.
+	 */
+	public long loadNanos() {
+
+		return nanos;
+	}
+
+	/**
+	 * Describes the last load.
+	 * @return words, bytes, time and bytes per second of the last load.
+	 */
+	public String report() {
+
+		double seconds = nanos / 1e9;
+		return String.format("Loaded %d words (%d bytes) in %.1f ms, %.1f MB/s", words, bytes, seconds * 1000,
+				(seconds > 0) ? bytes / seconds / 1e6 : 0.0);
+	}
+
+	/**
+	 * Iterator over the trimmed, non blank lines of a channel. When distinct,
+	 * 	a line that is equal to the line before it is skipped, so sorted input
+	 * 	has no duplicates.
+	 */
+	private class LineIterator implements Iterator<String> {
+
+		private final FileChannel channel;
+		private final boolean distinct;
+		private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPORT)
+				.onUnmappableCharacter(CodingErrorAction.REPORT);
+
+		private final ByteBuffer in = ByteBuffer.allocate(BUFFER_BYTES);
+		private final CharBuffer out = CharBuffer.allocate(BUFFER_BYTES);
+
+		// start of a line that continues in the next buffer
+		private final StringBuilder partial = new StringBuilder();
+
+		private boolean endOfInput;
+		private boolean firstLine = true;
+		private String next;
+		private String previous;
+
+		/**
+		 * Constructor reads the first line.
+		 * @param channel file that is read.
+		 * @param distinct whether lines equal to the line before are skipped.
+		 */
+		LineIterator(FileChannel channel, boolean distinct) {
+
+			this.channel = channel;
+			this.distinct = distinct;
+			out.flip();
+			advance();
+		}
+
+		/**
+		 * Checks whether the file has another line that is not skipped.
+		 * @return true if there is another word.
+		 */
+		@Override
+		public boolean hasNext() {
+
+			return (next != null);
+		}
+
+		/**
+		 * Returns the next word, counts it and reads ahead to the line after it.
+		 * @return the next word.
+		 * @throws NoSuchElementException if there are no more words.
+		 * @throws UncheckedIOException if the file cannot be read or is not valid UTF-8.
+		 */
+		@Override
+		public String next() {
+
+			if (next == null) {
+				throw new NoSuchElementException("No more words");
+			}
+			String word = next;
+			previous = word;
+			words++;
+			advance();
+			return word;
+		}
+
+		/**
+		 * Finds the next line that is not blank and, when distinct, not equal
+		 * 	to the previous word.
+		 */
+		private void advance() {
+
+			try {
+				String line;
+				while ((line = readLine()) != null) {
+
+					// byte order mark written by some editors
+					if (firstLine) {
+						firstLine = false;
+						if (!line.isEmpty() && line.charAt(0) == '\uFEFF') {
+							line = line.substring(1);
+						}
+					}
+
+					line = line.trim();
+					if (!line.isEmpty() && !(distinct && line.equals(previous))) {
+						next = line;
+						return;
+					}
+				}
+				next = null;
+			}
+			catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		/**
+		 * Returns the next line without its line terminator, decoding more of
+		 * 	the file when the decoded characters have no complete line.
+		 * @return the line or null at the end of the file.
+		 */
+		private String readLine() throws IOException {
+
+			while (true) {
+
+				// look for the end of a line in the decoded characters
+				char[] chars = out.array();
+				int start = out.position();
+				for (int i = start; i < out.limit(); i++) {
+					if (chars[i] == '\n') {
+						out.position(i + 1);
+						if (partial.length() == 0) {
+							return new String(chars, start, i - start);
+						}
+						String line = partial.append(chars, start, i - start).toString();
+						partial.setLength(0);
+						return line;
+					}
+				}
+				partial.append(chars, start, out.limit() - start);
+
+				// last line without a line terminator
+				if (endOfInput) {
+					if (partial.length() == 0) {
+						return null;
+					}
+					String line = partial.toString();
+					partial.setLength(0);
+					return line;
+				}
+
+				fill();
+			}
+		}
+
+		/**
+		 * Reads the next block of bytes and decodes as many of them as possible.
+		 * 	Bytes of a character that continues in the next block are kept.
+		 */
+		private void fill() throws IOException {
+
+			out.clear();
+			int read = channel.read(in);
+			if (read < 0) {
+				endOfInput = true;
+			}
+			else {
+				bytes += read;
+			}
+
+			in.flip();
+			CoderResult result = decoder.decode(in, out, endOfInput);
+			if (result.isError()) {
+				result.throwException();
+			}
+			if (endOfInput) {
+				decoder.flush(out);
+			}
+			in.compact();
+			out.flip();
+		}
+	}
+
+	/**
+	 * Loads a dictionary text file and prints how long it took.
+	 * 	Usage: java DictionaryLoader words.txt
+	 * @param args dictionary text file.
+	 * @throws IOException if the file cannot be read.
+	 */
+	public static void main(String[] args) throws IOException {
+
+		if (args.length == 0) {
+			System.err.println("Usage: java DictionaryLoader <dictionary file>");
+			System.exit(0);
+		}
+
+		DictionaryLoader loader = new DictionaryLoader();
+		Dictionary dictionary = loader.load(Paths.get(args[0]));
+		System.out.println(loader.report() + ", " + dictionary.size() + " words in the dictionary");
+	}
+}
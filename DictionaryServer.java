@@ -0,0 +1,428 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * DictionaryServer class answers dictionary queries over HTTP on the loopback
+ * 	address, so that programs can query one loaded dictionary instead of
+ * 	starting FindWord for every request. The dictionary is only read, so
+ * 	every request is answered on a shared Dictionary without locking.
+ *
+ * 	Endpoints, all GET with URL encoded parameters, answering plain text with
+ * 	one word per line:
+ * 	/contains?word=w             true or false
+ * 	/prefix?prefix=p[&amp;limit=n]   words starting with p
+ * 	/range?from=a&amp;to=b[&amp;limit=n]  words from a (inclusive) to b (exclusive)
+ * 	/solve?rack=letters          words that can be made from the letters, cached
+ * 	                             for racks asked for again in any letter order
+ * 	/stats                       request counts and latency percentiles, and the
+ * 	                             TreeMetrics counters when metrics are enabled
+ *
+ * 	Requests are handled by a fixed number of worker threads fed from a
+ * 	bounded queue. When the queue is full the thread that accepts connections
+ * 	waits for space, so it stops reading new requests and clients are slowed
+ * 	down by TCP instead of the server queueing without limit. Connections are
+ * 	kept alive, and requests pipelined on one connection are read one after the
+ * 	other and answered in order.
+ * 	Usage: java DictionaryServer dictionary [port] [threads] [queue length]
+ * @author Adisa Narula
+ */
+public class DictionaryServer {
+
+	// most words returned by prefix and range when no limit is given
+	static final int DEFAULT_LIMIT = 1000;
+
+	// latencies kept per endpoint for the percentiles
+	private static final int LATENCY_SAMPLES = 8192;
+
+	private static final String[] ENDPOINTS = { "contains", "prefix", "range", "solve", "stats" };
+
+	private final Dictionary dictionary;
+	private final HttpServer server;
+	private final ThreadPoolExecutor workers;
+	private final Map<String, Latencies> latencies = new LinkedHashMap<String, Latencies>();
+	private final AtomicLong errors = new AtomicLong();
+	private final RackCache cache = new RackCache();
+
+	/**
+	 * Constructor binds the server to a port of the loopback address. The
+	 * 	server does not answer requests until it is started.
+	 * @param dictionary dictionary that is queried.
+	 * @param port port to listen on, or 0 for any free port.
+	 * @param threads number of worker threads.
+	 * @param queueLength number of requests that can wait for a worker.
+	 * @throws IOException if the port cannot be bound.
+	 * @throws IllegalArgumentException if threads or queueLength is less than one.
+	 */
+	public DictionaryServer(Dictionary dictionary, int port, int threads, int queueLength) throws IOException {
+
+		if (threads < 1) {
+			throw new IllegalArgumentException("Number of threads must be at least one: " + threads);
+		}
+		if (queueLength < 1) {
+			throw new IllegalArgumentException("Queue length must be at least one: " + queueLength);
+		}
+
+		this.dictionary = dictionary;
+
+		// a full queue blocks the thread that hands over requests until a worker takes one
+		this.workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<Runnable>(queueLength), DictionaryServer::waitForWorker);
+
+		this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		this.server.setExecutor(workers);
+
+		for (String endpoint : ENDPOINTS) {
+			latencies.put(endpoint, new Latencies());
+			server.createContext("/" + endpoint, exchange -> handle(endpoint, exchange));
+		}
+	}
+
+	/**
+	 * Starts answering requests.
+	 */
+	public void start() {
+
+		server.start();
+	}
+
+	/**
+	 * Stops the server, waiting at most the given time for requests that
+	 * 	are being answered. A request handed over after the workers stop is
+	 * 	answered by the thread that handed it over, so its connection is closed.
+	 * @param seconds longest time to wait.
+	 */
+	public void stop(int seconds) {
+
+		server.stop(seconds);
+		workers.shutdownNow();
+	}
+
+	/**
+	 * Returns the port the server listens on, which is useful when it was
+	 * 	created with port 0.
+	 * @return port number.
+	 */
+	public int port() {
+
+		return server.getAddress().getPort();
+	}
+
+	/**
+	 * Handles a request the workers did not accept because the queue is full,
+	 * 	by waiting for space in the queue. Once the workers are stopped nobody
+	 * 	would take the request from the queue and its exchange would never be
+	 * 	closed, so it is run on the calling thread instead.
+	 * @param request request handed over by the server.
+	 * @param executor workers that rejected it.
+	 */
+	private static void waitForWorker(Runnable request, ThreadPoolExecutor executor) {
+
+		if (!executor.isShutdown()) {
+			try {
+				executor.getQueue().put(request);
+
+				// stopped while waiting, the queue is not read anymore
+				if (!executor.isShutdown() || !executor.getQueue().remove(request)) {
+					return;
+				}
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		request.run();
+	}
+
+	/**
+	 * Answers one request and records how long it took.
+	 * @param endpoint name of the endpoint.
+	 * @param exchange request and response.
+	 */
+	private void handle(String endpoint, HttpExchange exchange) throws IOException {
+
+		long start = System.nanoTime();
+		int status = 200;
+		String body;
+
+		try {
+			Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+			if (!exchange.getRequestMethod().equals("GET")) {
+				status = 405;
+				body = "Only GET is supported\n";
+			}
+			else {
+				body = answer(endpoint, query);
+			}
+		}
+		catch (IllegalArgumentException e) {
+			status = 400;
+			body = e.getMessage() + "\n";
+		}
+		catch (RuntimeException e) {
+			status = 500;
+			body = "Internal error\n";
+		}
+
+		if (status != 200) {
+			errors.incrementAndGet();
+		}
+
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+		// a length of -1 tells the server there is no body, 0 would mean chunked
+		exchange.sendResponseHeaders(status, (bytes.length == 0) ? -1 : bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+
+		latencies.get(endpoint).add(System.nanoTime() - start);
+	}
+
+	/**
+	 * Answers the query of an endpoint.
+	 * @param endpoint name of the endpoint.
+	 * @param query parameters of the request.
+	 * @return response body.
+	 * @throws IllegalArgumentException if a parameter is missing or invalid.
+	 */
+	private String answer(String endpoint, Map<String, String> query) {
+
+		switch (endpoint) {
+
+		case "contains":
+			return dictionary.checkEquals(required(query, "word")) + "\n";
+
+		case "prefix":
+			return lines(dictionary.wordsWithPrefix(required(query, "prefix")), limit(query));
+
+		case "range":
+			return lines(dictionary.wordsInRange(required(query, "from"), required(query, "to")), limit(query));
+
+		case "solve":
+			String[] letters = FindWord.splitLetters(required(query, "rack"));
+			if (letters == null) {
+				throw new IllegalArgumentException("rack must have 2 to " + FindWord.MAX_LETTERS + " letters");
+			}
+			return lines(cache.solve(dictionary, letters), Integer.MAX_VALUE);
+
+		default:
+			return stats();
+		}
+	}
+
+	/**
+	 * Formats the request counts and latency percentiles of every endpoint.
+	 * @return stats as lines of text.
+	 */
+	private String stats() {
+
+		StringBuilder text = new StringBuilder();
+		text.append("words ").append(dictionary.size()).append('\n');
+		text.append("queued ").append(workers.getQueue().size()).append('\n');
+		text.append("active ").append(workers.getActiveCount()).append('\n');
+		text.append("errors ").append(errors.get()).append('\n');
+		text.append(cache).append('\n');
+
+		for (Map.Entry<String, Latencies> entry : latencies.entrySet()) {
+			long[] sorted = entry.getValue().recent();
+			text.append(String.format("%s requests %d p50 %.3f ms p90 %.3f ms p99 %.3f ms max %.3f ms%n",
+					entry.getKey(), entry.getValue().count(), percentile(sorted, 50), percentile(sorted, 90),
+					percentile(sorted, 99), percentile(sorted, 100)));
+		}
+
+		// tree and solver counters when the JVM runs with -Davltree.metrics=true
+		if (TreeMetrics.ENABLED) {
+			text.append(TreeMetrics.snapshot());
+		}
+		return text.toString();
+	}
+
+	/**
+	 * Returns a percentile of sorted latencies.
+	 * @param sorted latencies in nanoseconds, in ascending order.
+	 * @param percent percentile from 0 to 100.
+	 * @return latency in milliseconds, 0 if there are none.
+	 */
+	private static double percentile(long[] sorted, int percent) {
+
+		if (sorted.length == 0) {
+			return 0;
+		}
+		int index = (int) Math.ceil(percent / 100.0 * sorted.length) - 1;
+		return sorted[Math.max(index, 0)] / 1e6;
+	}
+
+	/**
+	 * Joins words into lines, stopping after limit words.
+	 * @param words words of the answer.
+	 * @param limit most words joined.
+	 * @return one word per line.
+	 */
+	private static String lines(Iterable<String> words, int limit) {
+
+		StringBuilder text = new StringBuilder();
+		int count = 0;
+		for (String word : words) {
+			if (count++ == limit) {
+				break;
+			}
+			text.append(word).append('\n');
+		}
+		return text.toString();
+	}
+
+	/**
+	 * Returns a parameter that every request of an endpoint has to have.
+	 * @param query parameters of the request.
+	 * @param name name of the parameter.
+	 * @return value of the parameter.
+	 * @throws IllegalArgumentException if the parameter is missing.
+	 */
+	private static String required(Map<String, String> query, String name) {
+
+		String value = query.get(name);
+		if (value == null) {
+			throw new IllegalArgumentException("Missing parameter: " + name);
+		}
+		return value;
+	}
+
+	/**
+	 * Returns the limit parameter, the most words an answer has.
+	 * @param query parameters of the request.
+	 * @return limit, or DEFAULT_LIMIT if there is none.
+	 * @throws IllegalArgumentException if the limit is not a number or is negative.
+	 */
+	private static int limit(Map<String, String> query) {
+
+		String value = query.get("limit");
+		if (value == null) {
+			return DEFAULT_LIMIT;
+		}
+		try {
+			int limit = Integer.parseInt(value);
+			if (limit < 0) {
+				throw new IllegalArgumentException("limit cannot be negative: " + value);
+			}
+			return limit;
+		}
+		catch (NumberFormatException e) {
+			throw new IllegalArgumentException("limit is not a number: " + value);
+		}
+	}
+
+	/**
+	 * Splits a raw query string into decoded parameters.
+	 * @param rawQuery query string of the request, or null.
+	 * @return parameters by name.
+	 */
+	private static Map<String, String> parseQuery(String rawQuery) {
+
+		Map<String, String> query = new HashMap<String, String>();
+		if (rawQuery == null) {
+			return query;
+		}
+		for (String pair : rawQuery.split("&")) {
+			int equals = pair.indexOf('=');
+			if (equals > 0) {
+				query.put(URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8),
+						URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+			}
+		}
+		return query;
+	}
+
+	/**
+	 * Ring of the most recent latencies of one endpoint.
+	 */
+	private static class Latencies {
+
+		private final long[] samples = new long[LATENCY_SAMPLES];
+		private long count;
+
+		/**
+		 * Records a latency, replacing the oldest one when the ring is full.
+		 * @param nanos latency in nanoseconds.
+		 */
+		synchronized void add(long nanos) {
+
+			samples[(int) (count++ % samples.length)] = nanos;
+		}
+
+		/**
+		 * Returns the number of latencies recorded, including replaced ones.
+		 * @return requests answered.
+		 */
+		synchronized long count() {
+
+			return count;
+		}
+
+		/**
+		 * Returns the recent latencies in ascending order.
+		 * @return copy of the latencies kept, sorted.
+		 */
+		long[] recent() {
+
+			long[] copy;
+			synchronized (this) {
+				copy = Arrays.copyOf(samples, (int) Math.min(count, samples.length));
+			}
+			Arrays.sort(copy);
+			return copy;
+		}
+	}
+
+	/**
+	 * Loads a dictionary, or opens an index file, and serves it until the
+	 * 	process is stopped.
+	 * 	Usage: java DictionaryServer dictionary [port] [threads] [queue length]
+	 * @param args dictionary file, port, number of threads and queue length.
+	 * @throws IOException if the dictionary cannot be read or the port cannot be bound.
+	 */
+	public static void main(String[] args) throws IOException {
+
+		if (args.length == 0) {
+			System.err.println("Usage: java DictionaryServer dictionary [port] [threads] [queue length]");
+			System.exit(0);
+		}
+		int port = (args.length > 1) ? Integer.parseInt(args[1]) : 8080;
+		int threads = (args.length > 2) ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+		int queueLength = (args.length > 3) ? Integer.parseInt(args[3]) : 64 * threads;
+
+		Dictionary dictionary;
+		if (args[0].endsWith(MappedDictionary.EXTENSION)) {
+
+			// the index is searched for every letter tried, so reject most prefixes before the search
+			dictionary = new Dictionary(MappedDictionary.open(Paths.get(args[0])));
+			dictionary.buildPrefixFilter();
+		}
+		else {
+			dictionary = FindWord.loadFile(args[0]);
+		}
+
+		if (TreeMetrics.ENABLED) {
+			try {
+				TreeMetrics.registerMBean();
+			}
+			catch (javax.management.JMException e) {
+				System.err.println("Metrics could not be registered: " + e.getMessage());
+			}
+		}
+
+		DictionaryServer server = new DictionaryServer(dictionary, port, threads, queueLength);
+		server.start();
+		System.out.println("Serving " + dictionary.size() + " words on http://localhost:" + server.port() + "/");
+	}
+}
@@ -1,7 +1,12 @@
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
 
 import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * @author Adisa Narula
@@ -12,9 +17,22 @@ import java.util.*;
 
 public class FindWord {
 
+	// longest rack accepted, the search only visits prefixes of dictionary words so its cost does not grow with the permutations of the rack 
+	static final int MAX_LETTERS = 25;
+
+	// command line option that solves many racks with one loaded dictionary 
+	static final String BATCH_OPTION = "--batch";
+	
+	// command line option that ranks the words found by their frequency in a file of words and counts 
+	static final String FREQUENCIES_OPTION = "--frequencies";
+
 	/**
 	 * Main method takes file name and user input, validates them and exits the program if an error is found 
 	 * This method is where the setLetters object is instantiated which takes user input and dictionary as argument  
+	 * A rack of SetLetters.PARALLEL_LETTERS or more letters is searched on every core 
+	 * With the batch option the dictionary is loaded once and every line of a file, or of standard input, is solved as a rack 
+	 * With the frequencies option the words found are listed from the most to the least frequent instead of alphabetically 
+	 * 	Usage: java FindWord dictionary [--frequencies file] [--batch [racks file | -] [threads]] 
 	 * @param args The name of the dictionary text file given in the command line 
 	 * @throws IOException Throws an exception when file in the command line does not exist 
 	 */
@@ -29,18 +47,55 @@ public static void main(String[] args) throws IOException{
 			System.exit(0);
 		}
 		
-		// store dictionary content in string array 
-		String[] dictionaryWord = readFile(args[0]);
+		// open index file directly or load dictionary file into the tree 
+		Dictionary dictionary;
+		if (args[0].endsWith(MappedDictionary.EXTENSION)) {
+			
+			// the index is searched for every letter tried, so reject most prefixes before the search 
+			dictionary = new Dictionary(MappedDictionary.open(Paths.get(args[0])));
+			dictionary.buildPrefixFilter();
+		}
+		else {
+			dictionary = loadFile(args[0]);
+		}
+		
+		// word frequencies that the words found are ranked by 
+		AVLTreeLongMap<String> frequencies = null;
+		int option = 1;
+		if (args.length > 2 && args[1].equals(FREQUENCIES_OPTION)) {
+			frequencies = loadFrequencies(args[2]);
+			option = 3;
+		}
+		
+		// solve racks line by line until the input ends 
+		if (args.length > option && args[option].equals(BATCH_OPTION)) {
+			
+			int threads = (args.length > option + 2) ? Integer.parseInt(args[option + 2]) : Runtime.getRuntime().availableProcessors();
+			BufferedReader input = (args.length > option + 1 && !args[option + 1].equals("-")) 
+					? Files.newBufferedReader(Paths.get(args[option + 1]), StandardCharsets.UTF_8) 
+					: new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+			
+			try {
+				batch(dictionary, input, new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))), threads, frequencies);
+			}
+			finally {
+				input.close();
+			}
+			return;
+		}
 		
 		// store user input in string array 
 		String[] letters = validateInput();
 		
-		// create CreateLetters object to load letters and dictionary into the class
-		SetLetters words = new SetLetters(letters, dictionaryWord);
+		// create CreateLetters object to load letters and dictionary into the class, searching large racks on every core 
+		int cores = Runtime.getRuntime().availableProcessors();
+		SetLetters words = (letters.length >= SetLetters.PARALLEL_LETTERS && cores > 1) 
+				? new SetLetters(letters, dictionary, cores) 
+				: new SetLetters(letters, dictionary);
 		
 		// Collection of words found in dictionary
 		
-		Collection <String> wordsFound = words.getArray();
+		Collection <String> wordsFound = (frequencies != null) ? words.getRanked(frequencies) : words.getArray();
 
 		Iterator<String> iterator = wordsFound.iterator();
 		
@@ -58,6 +113,248 @@ public static void main(String[] args) throws IOException{
 		
 	}
 		
+	/**
+	 * Solves every line of the input as a rack and writes one line per rack with the rack and the words found, 
+	 * 	in the same order as the input. The racks are solved by a fixed number of worker threads, and at most 
+	 * 	a few racks per thread are read ahead, so a long input is never held in memory. Every answer is written 
+	 * 	and flushed as soon as it and the answers before it are solved, and the batch waits for the pending 
+	 * 	answers before it blocks on reading, so a client that sends one rack at a time gets each answer back. 
+	 * 	A line that is not a valid rack is answered with an error instead of ending the program. Racks that 
+	 * 	repeat, in any letter order, are answered from a RackCache shared by the workers. The number of racks 
+	 * 	solved per second and the cache hits are written to standard error at the end. 
+	 * @param dictionary dictionary loaded once for all the racks 
+	 * @param input lines of letters 
+	 * @param output where the answers are written 
+	 * @param threads number of worker threads 
+	 * @return number of racks solved 
+	 * @throws IOException when the input cannot be read 
+	 */
+	public static long batch(Dictionary dictionary, BufferedReader input, PrintWriter output, int threads) throws IOException {
+		
+		return batch(dictionary, input, output, threads, null);
+	}
+	
+	/**
+	 * Solves every line of the input as a rack like batch(Dictionary, BufferedReader, PrintWriter, int), 
+	 * 	listing the words of every answer from the most to the least frequent. 
+	 * @param dictionary dictionary loaded once for all the racks 
+	 * @param input lines of letters 
+	 * @param output where the answers are written 
+	 * @param threads number of worker threads 
+	 * @param frequencies frequency of each word, or null to list the words alphabetically 
+	 * @return number of racks solved 
+	 * @throws IOException when the input cannot be read 
+	 */
+	public static long batch(Dictionary dictionary, BufferedReader input, PrintWriter output, int threads, 
+			AVLTreeLongMap<String> frequencies) throws IOException {
+		
+		if (threads < 1) {
+			throw new IllegalArgumentException("Number of threads must be at least one: " + threads);
+		}
+		
+		ExecutorService workers = Executors.newFixedThreadPool(threads);
+		RackCache cache = new RackCache();
+		
+		// answers that are not written yet, oldest first 
+		ArrayDeque<Future<String>> pending = new ArrayDeque<Future<String>>();
+		long racks = 0;
+		long start = System.nanoTime();
+		
+		try {
+			
+			String line;
+			while (true) {
+				
+				// no more input is waiting, so answer the racks read so far before blocking on the read 
+				if (!input.ready()) {
+					while (!pending.isEmpty()) {
+						write(output, answer(pending.poll()));
+					}
+				}
+				if ((line = input.readLine()) == null) {
+					break;
+				}
+				
+				final String rack = line.trim();
+				if (rack.isEmpty()) {
+					continue;
+				}
+				
+				// wait for the oldest answer before reading further ahead 
+				if (pending.size() == 4 * threads) {
+					write(output, answer(pending.poll()));
+				}
+				pending.add(workers.submit(() -> solve(cache, dictionary, rack, frequencies)));
+				racks++;
+				
+				// write the answers that are already solved, in input order 
+				while (!pending.isEmpty() && pending.peek().isDone()) {
+					write(output, answer(pending.poll()));
+				}
+			}
+			
+			while (!pending.isEmpty()) {
+				write(output, answer(pending.poll()));
+			}
+		}
+		finally {
+			workers.shutdownNow();
+		}
+		
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.err.printf("Solved %d racks in %.3f s (%.1f racks/s)%n", racks, seconds, racks / seconds);
+		System.err.println(cache);
+		if (TreeMetrics.ENABLED) {
+			System.err.print(TreeMetrics.snapshot());
+		}
+		return racks;
+	}
+	
+	/**
+	 * Solves one rack and formats the answer as the rack followed by the words found. 
+	 * @param cache words of racks solved before 
+	 * @param dictionary dictionary the words are searched for in 
+	 * @param rack line of letters 
+	 * @param frequencies frequency of each word to rank the words by, or null to keep them sorted 
+	 * @return answer line 
+	 */
+	private static String solve(RackCache cache, Dictionary dictionary, String rack, AVLTreeLongMap<String> frequencies) {
+		
+		String[] letters = splitLetters(rack);
+		if (letters == null) {
+			return rack + ": invalid input, expected 2 to " + MAX_LETTERS + " letters";
+		}
+		
+		// cached words stay sorted, so racks that repeat are ranked again 
+		List<String> words = cache.solve(dictionary, letters);
+		if (frequencies != null) {
+			words = SetLetters.rank(words, frequencies);
+		}
+		
+		StringBuilder answer = new StringBuilder(rack).append(':');
+		for (String word : words) {
+			answer.append(' ').append(word);
+		}
+		return answer.toString();
+	}
+	
+	/**
+	 * Writes an answer line and flushes it, so a client reading the answers 
+	 * 	sees each one as soon as it is solved. 
+	 * @param output where the answers are written 
+	 * @param answer answer line 
+	 */
+	private static void write(PrintWriter output, String answer) {
+		
+		output.println(answer);
+		output.flush();
+	}
+	
+	/**
+	 * Waits for an answer of the batch. 
+	 * @param future answer being solved 
+	 * @return answer line 
+	 */
+	private static String answer(Future<String> future) {
+		
+		try {
+			return future.get();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while solving racks", e);
+		}
+		catch (ExecutionException e) {
+			throw new IllegalStateException("Solving a rack failed", e.getCause());
+		}
+	}
+	
+	/**
+	 * Splits a rack into lower case single letters. 
+	 * @param letters rack entered 
+	 * @return array of letters, or null if the rack is too short, too long or has characters that are not letters 
+	 */
+	static String[] splitLetters(String letters) {
+		
+		if (letters.length() < 2 || letters.length() > MAX_LETTERS) {
+			return null;
+		}
+		
+		String lowerLetters = letters.toLowerCase();
+		String[] finalLetters = new String[lowerLetters.length()];
+		for (int i = 0; i < finalLetters.length; i++) {
+			if (!Character.isLetter(lowerLetters.charAt(i))) {
+				return null;
+			}
+			finalLetters[i] = String.valueOf(lowerLetters.charAt(i));
+		}
+		return finalLetters;
+	}
+	
+	/**
+	 * Loads the dictionary file that user input straight into the dictionary tree and reports 
+	 * 	the load time on standard error, exits the program when the file cannot be read 
+	 * @param name of the file from command line 
+	 * @return dictionary of the words in the file 
+	 */
+	
+	public static Dictionary loadFile(String name) {
+		
+		DictionaryLoader loader = new DictionaryLoader();
+		
+		try {
+			
+			Dictionary dictionary = loader.load(Paths.get(name));
+			System.err.println(loader.report());
+			return dictionary;
+		}
+		
+		catch (NoSuchFileException e) {
+			
+			System.err.println("File was not found");
+			System.exit(0);
+		}
+		
+		catch (IOException e) {
+			
+			System.err.println("File could not be read: " + e);
+			System.exit(0);
+		}
+		return null;
+	}
+	
+	/**
+	 * Loads a file of words and their counts, one word per line, and reports the load time 
+	 * 	on standard error, exits the program when the file cannot be read 
+	 * @param name of the frequency file from command line 
+	 * @return frequency of every word in the file 
+	 */
+	
+	public static AVLTreeLongMap<String> loadFrequencies(String name) {
+		
+		DictionaryLoader loader = new DictionaryLoader();
+		
+		try {
+			
+			AVLTreeLongMap<String> frequencies = loader.loadFrequencies(Paths.get(name));
+			System.err.println(loader.report());
+			return frequencies;
+		}
+		
+		catch (NoSuchFileException e) {
+			
+			System.err.println("Frequency file was not found");
+			System.exit(0);
+		}
+		
+		catch (IOException e) {
+			
+			System.err.println("Frequency file could not be read: " + e);
+			System.exit(0);
+		}
+		return null;
+	}
+	
 	/**
 	 * Reads file that user input and returns string array with words from the dictionary
 	 * catches IOExpcetion when file is not found and exits the program
@@ -102,13 +399,13 @@ public static void main(String[] args) throws IOException{
 	
 	/**
 	 * Validates the string of characters that user enters and exits the program if an error is found.
-	 * Errors include input with invalid characters such as "1!-" and length of characters than are smaller than two or greater than ten.
+	 * Errors include input with invalid characters such as "1!-" and length of characters than are smaller than two or greater than MAX_LETTERS.
 	 * @return String array of letters that have been validated 
 	 */
 		
 		public static String[] validateInput() {
 
-			System.out.println("Enter a string of letters (2-10 characters):");
+			System.out.println("Enter a string of letters (2-" + MAX_LETTERS + " characters):");
 			
 			// take user input and makes the necessary changes  
 			
@@ -120,7 +417,7 @@ public static void main(String[] args) throws IOException{
 			
 			// loop through char array to validate input 
 			
-			if ((2 <= letters.length()) && (letters.length() <= 10)) {
+			if ((2 <= letters.length()) && (letters.length() <= MAX_LETTERS)) {
 				
 				for (int i = 0; i < newLetters.length; i++) {
 					
@@ -136,21 +433,11 @@ public static void main(String[] args) throws IOException{
 			}
 			
 			else {
-				System.err.println("Size of input must be between 2 to 10 letters");
+				System.err.println("Size of input must be between 2 to " + MAX_LETTERS + " letters");
 				System.exit(0);
 			}
 			
-			// convert letters to lower case 
-			String lowerLetters = letters.toLowerCase();
-			
-			// split user input into array 
-			String[] splitLetters = lowerLetters.split("");
-			String[] finalLetters = new String[(splitLetters.length) -1];
-			
-			// make a copy of splitLetters array 
-			for (int i = 0; i < finalLetters.length; i++) {	
-				finalLetters[i] = splitLetters[i+1];
-			}
-			return finalLetters;	
+			// split user input into array of lower case letters 
+			return splitLetters(letters);	
 		}
 }
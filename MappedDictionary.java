@@ -0,0 +1,415 @@
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * MappedDictionary class is a read only dictionary index stored in a file and
+ * 	opened through a MappedByteBuffer. The words are kept as UTF-8 bytes in the
+ * 	order of an implicit balanced tree (Eytzinger layout): the root is slot 1 and
+ * 	the children of slot k are slots 2k and 2k + 1. Lookups walk the tree
+ * 	directly on the mapped bytes, so opening the index does not read or decode
+ * 	any word and several processes can share the same pages.
+ *
+ * 	File layout (big endian): magic, version, word count n, then n + 2 int offsets
+ * 	into the data block (slot 0 unused, offset n + 1 is the end of the data),
+ * 	then the data block with the bytes of every word.
+ * @author Adisa Narula
+ */
+public class MappedDictionary implements WordIndex {
+
+	// file extension used by FindWord to recognise an index file
+	public static final String EXTENSION = ".avlidx";
+
+	private static final int MAGIC = 0x41564C49;
+	private static final int VERSION = 1;
+	private static final int HEADER_BYTES = 12;
+
+	private final MappedByteBuffer buffer;
+	private final int count;
+	private final int dataStart;
+
+	/**
+	 * Constructor keeps the mapped file and reads its header.
+	 * @param buffer mapped index file.
+	 * @throws IOException if the file is not a dictionary index.
+	 */
+	private MappedDictionary(MappedByteBuffer buffer) throws IOException {
+
+		if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+			throw new IOException("Not a dictionary index file");
+		}
+		if (buffer.getInt(4) != VERSION) {
+			throw new IOException("Unsupported dictionary index version: " + buffer.getInt(4));
+		}
+
+		this.buffer = buffer;
+		this.count = buffer.getInt(8);
+		this.dataStart = HEADER_BYTES + 4 * (count + 2);
+
+		if (dataStart > buffer.capacity() || dataStart + offset(count + 1) > buffer.capacity()) {
+			throw new IOException("Dictionary index file is truncated");
+		}
+	}
+
+	/**
+	 * Maps an index file written by write into memory.
+	 * @param file index file.
+	 * @return dictionary that reads the mapped file.
+	 * @throws IOException if the file cannot be mapped or is not an index.
+	 */
+	public static MappedDictionary open(Path file) throws IOException {
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			return new MappedDictionary(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+
+	/**
+	 * Writes an index file for the words. Words are sorted by their UTF-8
+	 * 	bytes and duplicates are dropped, so the input does not have to be sorted.
+	 * @param words words of the dictionary.
+	 * @param file index file that is created or replaced.
+	 * @throws IOException if the file cannot be written.
+	 */
+	public static void write(String[] words, Path file) throws IOException {
+
+		// encode and sort in the order used by lookups
+		byte[][] sorted = new byte[words.length][];
+		for (int i = 0; i < words.length; i++) {
+			sorted[i] = words[i].getBytes(StandardCharsets.UTF_8);
+		}
+		Arrays.sort(sorted, Arrays::compareUnsigned);
+
+		int unique = 0;
+		for (int i = 0; i < sorted.length; i++) {
+			if (unique == 0 || Arrays.compareUnsigned(sorted[unique - 1], sorted[i]) != 0) {
+				sorted[unique++] = sorted[i];
+			}
+		}
+
+		// place the sorted words in tree slots 1..unique
+		byte[][] slots = new byte[unique + 1][];
+		fillSlots(sorted, slots, 1, new int[1]);
+
+		long dataBytes = 0;
+		for (int k = 1; k <= unique; k++) {
+			dataBytes += slots[k].length;
+		}
+		if (HEADER_BYTES + 4L * (unique + 2) + dataBytes > Integer.MAX_VALUE) {
+			throw new IOException("Dictionary is too large for an index file");
+		}
+
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(unique);
+
+			// offsets of every slot, slot 0 is unused
+			int offset = 0;
+			out.writeInt(0);
+			for (int k = 1; k <= unique; k++) {
+				out.writeInt(offset);
+				offset += slots[k].length;
+			}
+			out.writeInt(offset);
+
+			for (int k = 1; k <= unique; k++) {
+				out.write(slots[k]);
+			}
+		}
+	}
+
+	/**
+	 * Recursively assigns sorted words to tree slots in order, so that an
+	 * 	in order walk of the slots visits the words in sorted order.
+	 * @param sorted words in sorted order.
+	 * @param slots tree slots that are filled.
+	 * @param slot current slot.
+	 * @param next index of the next sorted word to place.
+	 */
+	private static void fillSlots(byte[][] sorted, byte[][] slots, int slot, int[] next) {
+
+		if (slot < slots.length) {
+			fillSlots(sorted, slots, 2 * slot, next);
+			slots[slot] = sorted[next[0]++];
+			fillSlots(sorted, slots, 2 * slot + 1, next);
+		}
+	}
+
+	/**
+	 * Returns the number of words in the index.
+	 * @return number of words.
+	 */
+	@Override
+	public int size() {
+
+		return count;
+	}
+
+	/**
+	 * Checks whether the index contains the word.
+	 * @param wordToSearch word that is searched for.
+	 * @return true if the word is in the index.
+	 */
+	@Override
+	public boolean checkEquals(String wordToSearch) {
+
+		byte[] key = wordToSearch.getBytes(StandardCharsets.UTF_8);
+		int slot = 1;
+
+		while (slot <= count) {
+
+			int cmp = compare(slot, key);
+			if (cmp == 0) {
+				return true;
+			}
+			slot = 2 * slot + ((cmp < 0) ? 1 : 0);
+		}
+		return false;
+	}
+
+	/**
+	 * Checks whether any word in the index starts with the prefix.
+	 * @param wordToSearch prefix that is searched for.
+	 * @return true if a word starts with the prefix.
+	 */
+	@Override
+	public boolean prefixDictionary(String wordToSearch) {
+
+		byte[] key = wordToSearch.getBytes(StandardCharsets.UTF_8);
+		int slot = lowerBound(key);
+		return (slot != 0 && startsWith(slot, key));
+	}
+
+	/**
+	 * Returns the words that start with the prefix in sorted order. The words
+	 * 	are decoded lazily while iterating.
+	 * @param prefix that the words start with.
+	 * @return iterable view of the words starting with the prefix.
+	 */
+	@Override
+	public Iterable<String> wordsWithPrefix(String prefix) {
+
+		byte[] key = prefix.getBytes(StandardCharsets.UTF_8);
+		return () -> new SlotIterator(lowerBound(key), key, null);
+	}
+
+	/**
+	 * Returns the words from one word (inclusive) to another (exclusive) in
+	 * 	sorted order. The words are decoded lazily while iterating.
+	 * @param from low end point of the range, inclusive.
+	 * @param to high end point of the range, exclusive.
+	 * @return iterable view of the words in the range.
+	 */
+	@Override
+	public Iterable<String> wordsInRange(String from, String to) {
+
+		byte[] low = from.getBytes(StandardCharsets.UTF_8);
+		byte[] high = to.getBytes(StandardCharsets.UTF_8);
+		return () -> new SlotIterator(lowerBound(low), null, high);
+	}
+
+	/**
+	 * Iterator over all the words in sorted order.
+	 * @return iterator<String> object
+	 */
+	@Override
+	public Iterator<String> iterator() {
+
+		return new SlotIterator(lowerBound(new byte[0]), null, null);
+	}
+
+	/**
+	 * Finds the slot of the first word that is not smaller than key.
+	 * @param key encoded word.
+	 * @return slot of the first word not smaller than key or 0 if there is none.
+	 */
+	private int lowerBound(byte[] key) {
+
+		int slot = 1;
+		while (slot <= count) {
+			slot = 2 * slot + ((compare(slot, key) < 0) ? 1 : 0);
+		}
+
+		// undo the right turns taken after the last left turn
+		return slot >>> (Integer.numberOfTrailingZeros(~slot) + 1);
+	}
+
+	/**
+	 * Finds the slot of the next word in sorted order.
+	 * @param slot current slot.
+	 * @return slot of the next word or 0 after the last word.
+	 */
+	private int successor(int slot) {
+
+		// leftmost slot of the right subtree
+		if (2 * slot + 1 <= count) {
+			slot = 2 * slot + 1;
+			while (2 * slot <= count) {
+				slot = 2 * slot;
+			}
+			return slot;
+		}
+
+		// climb while coming from a right child
+		while ((slot & 1) == 1) {
+			slot >>>= 1;
+		}
+		return slot >>> 1;
+	}
+
+	/**
+	 * Compares the word in a slot with key byte by byte as unsigned values.
+	 * @param slot slot of the word.
+	 * @param key encoded word.
+	 * @return negative, zero or positive as the word is less than, equal to or greater than key.
+	 */
+	private int compare(int slot, byte[] key) {
+
+		int start = dataStart + offset(slot);
+		int length = offset(slot + 1) - offset(slot);
+		int shared = Math.min(length, key.length);
+
+		for (int i = 0; i < shared; i++) {
+			int diff = (buffer.get(start + i) & 0xff) - (key[i] & 0xff);
+			if (diff != 0) {
+				return diff;
+			}
+		}
+		return length - key.length;
+	}
+
+	/**
+	 * Checks whether the word in a slot starts with prefix.
+	 * @param slot slot of the word.
+	 * @param prefix encoded prefix.
+	 * @return true if the word starts with prefix.
+	 */
+	private boolean startsWith(int slot, byte[] prefix) {
+
+		int start = dataStart + offset(slot);
+		if (offset(slot + 1) - offset(slot) < prefix.length) {
+			return false;
+		}
+		for (int i = 0; i < prefix.length; i++) {
+			if (buffer.get(start + i) != prefix[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Decodes the word stored in a slot.
+	 * @param slot slot of the word.
+	 * @return the word.
+	 */
+	private String wordAt(int slot) {
+
+		byte[] bytes = new byte[offset(slot + 1) - offset(slot)];
+		buffer.get(dataStart + offset(slot), bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Reads the offset of a slot's word from the offset table.
+	 * @param slot index of the slot; slot count + 1 gives the end of the data.
+	 * @return offset of the word from the start of the data.
+	 */
+	private int offset(int slot) {
+
+		return buffer.getInt(HEADER_BYTES + 4 * slot);
+	}
+
+	/**
+	 * Iterator that follows slot successors from a starting slot
+	 * 	while the words start with an optional prefix and are smaller
+	 * 	than an optional end.
+	 */
+	private class SlotIterator implements Iterator<String> {
+
+		private int slot;
+		private final byte[] prefix;
+		private final byte[] end;
+
+		/**
+		 * Constructor starts at a slot, or at no slot if its word is already
+		 * 	outside the range.
+		 * @param slot slot of the first word, or 0 for none.
+		 * @param prefix encoded prefix every word starts with, or null.
+		 * @param end encoded word the iteration stops before, or null.
+		 */
+		SlotIterator(int slot, byte[] prefix, byte[] end) {
+
+			this.slot = slot;
+			this.prefix = prefix;
+			this.end = end;
+			skipPastPrefix();
+		}
+
+		/**
+		 * Checks whether the iterator is at a word in the range.
+		 * @return true if there is another word.
+		 */
+		@Override
+		public boolean hasNext() {
+
+			return (slot != 0);
+		}
+
+		/**
+		 * Returns the current word and moves to its successor slot.
+		 * @return the next word.
+		 */
+		@Override
+		public String next() {
+
+			if (!hasNext()) {
+				throw new NoSuchElementException("No more elements");
+			}
+			String word = wordAt(slot);
+			slot = successor(slot);
+			skipPastPrefix();
+			return word;
+		}
+
+		/**
+		 * Ends the iteration when the current word no longer starts with the
+		 * 	prefix or is not smaller than the end.
+		 */
+		private void skipPastPrefix() {
+
+			if (slot != 0 && ((prefix != null && !startsWith(slot, prefix)) || (end != null && compare(slot, end) >= 0))) {
+				slot = 0;
+			}
+		}
+	}
+
+	/**
+	 * Builds an index file from a dictionary text file encoded in UTF-8 with
+	 * 	one word per line, read the same way as DictionaryLoader loads it.
+	 * 	Usage: java MappedDictionary words.txt words.avlidx
+	 * @param args dictionary text file and index file.
+	 * @throws IOException if a file cannot be read or written.
+	 */
+	public static void main(String[] args) throws IOException {
+
+		if (args.length < 2) {
+			System.err.println("Usage: java MappedDictionary <dictionary file> <index file>");
+			System.exit(0);
+		}
+
+		long start = System.nanoTime();
+		write(new DictionaryLoader().readWords(Paths.get(args[0])), Paths.get(args[1]));
+		long written = System.nanoTime();
+		MappedDictionary index = open(Paths.get(args[1]));
+
+		System.out.printf("Wrote %d words in %.1f ms, opened in %.3f ms%n", index.size(),
+				(written - start) / 1e6, (System.nanoTime() - written) / 1e6);
+	}
+}
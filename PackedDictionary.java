@@ -0,0 +1,508 @@
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * PackedDictionary class is a read only dictionary that keeps every word in
+ * 	one shared byte array instead of a String and a tree node per word. The
+ * 	words are stored as UTF-8 bytes in sorted order and front coded in blocks
+ * 	of BLOCK_WORDS words: the first word of a block is stored in full and every
+ * 	other word only stores the length of the prefix it shares with the word
+ * 	before it and the bytes after that prefix. Sorted words share long
+ * 	prefixes, so most words take a few bytes.
+ *
+ * 	A lookup binary searches the first words of the blocks, which are compared
+ * 	in place, and then decodes at most one block into a small buffer. Words are
+ * 	only turned into strings when they are returned.
+ *
+ * 	Block layout: first word as length, bytes; then for every other word the
+ * 	shared prefix length, suffix length, suffix bytes. Lengths are varints.
+ * @author Adisa Narula
+ */
+public class PackedDictionary implements WordIndex {
+
+	// words per front coded block
+	static final int BLOCK_WORDS = 16;
+
+	private final byte[] arena;
+	private final int[] blockStarts;
+	private final int count;
+	private final int maxLength;
+
+	// cursor of every thread for checkEquals and prefixDictionary, so a lookup allocates no buffer
+	private final ThreadLocal<Cursor> lookupCursor = ThreadLocal.withInitial(() -> new Cursor());
+
+	/**
+	 * Constructor keeps the packed words.
+	 * @param arena front coded blocks.
+	 * @param blockStarts offset of every block in the arena.
+	 * @param count number of words.
+	 * @param maxLength length of the longest word in bytes.
+	 */
+	private PackedDictionary(byte[] arena, int[] blockStarts, int count, int maxLength) {
+
+		this.arena = arena;
+		this.blockStarts = blockStarts;
+		this.count = count;
+		this.maxLength = maxLength;
+	}
+
+	/**
+	 * Packs words that do not have to be sorted. Nulls and duplicates are dropped.
+	 * @param words words of the dictionary.
+	 * @return packed dictionary of the words.
+	 */
+	public static PackedDictionary of(String[] words) {
+
+		return fromSortedWords(Arrays.asList(words).iterator());
+	}
+
+	/**
+	 * Packs words read from an iterator in ascending order, one word at a
+	 * 	time. Nulls and duplicates are dropped, and if a word is out of order
+	 * 	the words are sorted and packed again.
+	 * @param words in ascending order.
+	 * @return packed dictionary of the words.
+	 */
+	public static PackedDictionary fromSortedWords(Iterator<String> words) {
+
+		Packer packer = new Packer();
+
+		while (words.hasNext()) {
+
+			String word = words.next();
+			if (word == null) {
+				continue;
+			}
+			byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+
+			// out of order, sort everything and pack again
+			if (!packer.add(bytes)) {
+
+				ArrayList<byte[]> all = new ArrayList<byte[]>();
+				PackedDictionary packed = packer.finish();
+				for (Cursor cursor = packed.first(); cursor.valid(); cursor.next()) {
+					all.add(Arrays.copyOf(cursor.word, cursor.length));
+				}
+				all.add(bytes);
+				while (words.hasNext()) {
+					word = words.next();
+					if (word != null) {
+						all.add(word.getBytes(StandardCharsets.UTF_8));
+					}
+				}
+				all.sort(Arrays::compareUnsigned);
+
+				packer = new Packer();
+				for (byte[] sorted : all) {
+					packer.add(sorted);
+				}
+				break;
+			}
+		}
+		return packer.finish();
+	}
+
+	/**
+	 * Returns the number of bytes used by the packed words and block offsets.
+	 * @return size of the arena and offsets in bytes.
+	 */
+	public long packedBytes() {
+
+		return arena.length + 4L * blockStarts.length;
+	}
+
+	/**
+	 * Returns the number of words in the dictionary.
+	 * @return number of words.
+	 */
+	@Override
+	public int size() {
+
+		return count;
+	}
+
+	/**
+	 * Checks whether the dictionary contains the word, decoding at most one
+	 * 	block into the cursor of the calling thread.
+	 * @param wordToSearch word that is searched for.
+	 * @return true if the word is in the dictionary.
+	 */
+	@Override
+	public boolean checkEquals(String wordToSearch) {
+
+		byte[] key = wordToSearch.getBytes(StandardCharsets.UTF_8);
+		Cursor cursor = lowerBound(key, lookupCursor.get());
+		return (cursor.valid() && cursor.compareTo(key) == 0);
+	}
+
+	/**
+	 * Checks whether any word in the dictionary starts with the prefix,
+	 * 	decoding at most one block into the cursor of the calling thread.
+	 * @param wordToSearch prefix that is searched for.
+	 * @return true if a word starts with the prefix.
+	 */
+	@Override
+	public boolean prefixDictionary(String wordToSearch) {
+
+		byte[] key = wordToSearch.getBytes(StandardCharsets.UTF_8);
+		Cursor cursor = lowerBound(key, lookupCursor.get());
+		return (cursor.valid() && cursor.startsWith(key));
+	}
+
+	/**
+	 * Returns the words that start with the prefix in sorted order. The words
+	 * 	are decoded while iterating, by a cursor of each iterator.
+	 * @param prefix that the words start with.
+	 * @return iterable view of the words starting with the prefix.
+	 */
+	@Override
+	public Iterable<String> wordsWithPrefix(String prefix) {
+
+		byte[] key = prefix.getBytes(StandardCharsets.UTF_8);
+		return () -> new WordIterator(lowerBound(key, new Cursor()), key, null);
+	}
+
+	/**
+	 * Returns the words from one word (inclusive) to another (exclusive) in
+	 * 	sorted order. The words are decoded while iterating, by a cursor of
+	 * 	each iterator.
+	 * @param from low end point of the range, inclusive.
+	 * @param to high end point of the range, exclusive.
+	 * @return iterable view of the words in the range.
+	 */
+	@Override
+	public Iterable<String> wordsInRange(String from, String to) {
+
+		byte[] low = from.getBytes(StandardCharsets.UTF_8);
+		byte[] high = to.getBytes(StandardCharsets.UTF_8);
+		return () -> new WordIterator(lowerBound(low, new Cursor()), null, high);
+	}
+
+	/**
+	 * Iterator over all the words in sorted order.
+	 * @return iterator<String> object
+	 */
+	@Override
+	public Iterator<String> iterator() {
+
+		return new WordIterator(first(), null, null);
+	}
+
+	/**
+	 * Returns a new cursor at the first word.
+	 * @return cursor at the first word, which is not valid if there are no words.
+	 */
+	private Cursor first() {
+
+		Cursor cursor = new Cursor();
+		cursor.seek(0);
+		return cursor;
+	}
+
+	/**
+	 * Moves a cursor to the first word that is not smaller than key.
+	 * @param key encoded word.
+	 * @param cursor cursor that is moved, whatever word it was at.
+	 * @return the cursor, which is not valid if there is no such word.
+	 */
+	private Cursor lowerBound(byte[] key, Cursor cursor) {
+
+		// last block whose first word is not greater than key
+		int low = 0;
+		int high = blockStarts.length - 1;
+		while (low < high) {
+			int mid = (low + high + 1) >>> 1;
+			if (compareFirst(mid, key) <= 0) {
+				low = mid;
+			}
+			else {
+				high = mid - 1;
+			}
+		}
+
+		cursor.seek(low);
+		while (cursor.valid() && cursor.compareTo(key) < 0) {
+			cursor.next();
+		}
+		return cursor;
+	}
+
+	/**
+	 * Compares the first word of a block in place with key.
+	 * @param block index of the block.
+	 * @param key encoded word.
+	 * @return negative, zero or positive as the word is less than, equal to or greater than key.
+	 */
+	private int compareFirst(int block, byte[] key) {
+
+		int position = blockStarts[block];
+		int length = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = arena[position++];
+			length |= (b & 0x7f) << shift;
+			shift += 7;
+		} while (b < 0);
+
+		return Arrays.compareUnsigned(arena, position, position + length, key, 0, key.length);
+	}
+
+	/**
+	 * Position in the packed words that decodes one word at a time into its
+	 * 	own buffer, so several cursors can read the same dictionary.
+	 */
+	private class Cursor {
+
+		// current word and its length
+		final byte[] word = new byte[maxLength];
+		int length;
+
+		// index of the current word, count when past the last word
+		private int index;
+
+		// offset of the next encoded word in the arena
+		private int position;
+
+		/**
+		 * Moves to the first word of a block, or past the last word if the
+		 * 	block does not exist.
+		 * @param block index of the block.
+		 */
+		void seek(int block) {
+
+			index = block * BLOCK_WORDS;
+			if (index >= count) {
+				index = count;
+				return;
+			}
+			position = blockStarts[block];
+			length = readVarint();
+			System.arraycopy(arena, position, word, 0, length);
+			position += length;
+		}
+
+		/**
+		 * Moves to the next word, decoding it from the shared prefix with the
+		 * 	current word, or past the last word.
+		 */
+		void next() {
+
+			index++;
+			if (index >= count) {
+				index = count;
+				return;
+			}
+			if (index % BLOCK_WORDS == 0) {
+				seek(index / BLOCK_WORDS);
+				return;
+			}
+
+			// keep the shared prefix and copy the rest
+			int shared = readVarint();
+			int suffix = readVarint();
+			System.arraycopy(arena, position, word, shared, suffix);
+			position += suffix;
+			length = shared + suffix;
+		}
+
+		/**
+		 * Checks whether the cursor is at a word.
+		 * @return false once the cursor has moved past the last word.
+		 */
+		boolean valid() {
+
+			return (index < count);
+		}
+
+		/**
+		 * Compares the current word with key as unsigned bytes.
+		 * @param key encoded word.
+		 * @return negative, zero or positive as the word is less than, equal to or greater than key.
+		 */
+		int compareTo(byte[] key) {
+
+			return Arrays.compareUnsigned(word, 0, length, key, 0, key.length);
+		}
+
+		/**
+		 * Checks whether the current word starts with a prefix.
+		 * @param prefix encoded prefix.
+		 * @return true if the first bytes of the word are the prefix.
+		 */
+		boolean startsWith(byte[] prefix) {
+
+			return (length >= prefix.length && Arrays.equals(word, 0, prefix.length, prefix, 0, prefix.length));
+		}
+
+		/**
+		 * Decodes the current word.
+		 * @return the word as a string.
+		 */
+		String string() {
+
+			return new String(word, 0, length, StandardCharsets.UTF_8);
+		}
+
+		/**
+		 * Reads a varint at the position in the arena and moves past it.
+		 * @return value of the varint.
+		 */
+		private int readVarint() {
+
+			int value = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = arena[position++];
+				value |= (b & 0x7f) << shift;
+				shift += 7;
+			} while (b < 0);
+			return value;
+		}
+	}
+
+	/**
+	 * Iterator that moves a cursor forward while the words start with an
+	 * 	optional prefix and are smaller than an optional end.
+	 */
+	private class WordIterator implements Iterator<String> {
+
+		private final Cursor cursor;
+		private final byte[] prefix;
+		private final byte[] end;
+
+		/**
+		 * Constructor starts at the word of a cursor.
+		 * @param cursor cursor at the first word returned.
+		 * @param prefix encoded prefix every word starts with, or null.
+		 * @param end encoded word the iteration stops before, or null.
+		 */
+		WordIterator(Cursor cursor, byte[] prefix, byte[] end) {
+
+			this.cursor = cursor;
+			this.prefix = prefix;
+			this.end = end;
+		}
+
+		/**
+		 * Checks whether the cursor is at a word that is still in the range.
+		 * @return true if there is another word.
+		 */
+		@Override
+		public boolean hasNext() {
+
+			return (cursor.valid() && (prefix == null || cursor.startsWith(prefix))
+					&& (end == null || cursor.compareTo(end) < 0));
+		}
+
+		/**
+		 * Returns the word at the cursor and moves to the next one.
+		 * @return the next word.
+		 */
+		@Override
+		public String next() {
+
+			if (!hasNext()) {
+				throw new NoSuchElementException("No more elements");
+			}
+			String word = cursor.string();
+			cursor.next();
+			return word;
+		}
+	}
+
+	/**
+	 * Appends sorted words to a growing arena.
+	 */
+	private static class Packer {
+
+		private byte[] arena = new byte[1 << 12];
+		private int size;
+		private int[] blockStarts = new int[16];
+		private int count;
+		private int maxLength;
+		private byte[] previous;
+
+		/**
+		 * Appends a word if it is greater than the previous one.
+		 * @param word encoded word.
+		 * @return false if the word is smaller than the previous one, true
+		 * 	if it was added or is a duplicate.
+		 */
+		boolean add(byte[] word) {
+
+			int shared = 0;
+			if (previous != null) {
+				int cmp = Arrays.compareUnsigned(previous, word);
+				if (cmp > 0) {
+					return false;
+				}
+				if (cmp == 0) {
+					return true;
+				}
+				int limit = Math.min(previous.length, word.length);
+				while (shared < limit && previous[shared] == word[shared]) {
+					shared++;
+				}
+			}
+
+			ensure(word.length + 10);
+			if (count % BLOCK_WORDS == 0) {
+				if (count / BLOCK_WORDS == blockStarts.length) {
+					blockStarts = Arrays.copyOf(blockStarts, blockStarts.length * 2);
+				}
+				blockStarts[count / BLOCK_WORDS] = size;
+				writeVarint(word.length);
+				System.arraycopy(word, 0, arena, size, word.length);
+				size += word.length;
+			}
+			else {
+				writeVarint(shared);
+				writeVarint(word.length - shared);
+				System.arraycopy(word, shared, arena, size, word.length - shared);
+				size += word.length - shared;
+			}
+
+			count++;
+			maxLength = Math.max(maxLength, word.length);
+			previous = word;
+			return true;
+		}
+
+		/**
+		 * Trims the arena and offsets to their used size.
+		 * @return packed dictionary of the words added.
+		 */
+		PackedDictionary finish() {
+
+			int blocks = (count + BLOCK_WORDS - 1) / BLOCK_WORDS;
+			return new PackedDictionary(Arrays.copyOf(arena, size), Arrays.copyOf(blockStarts, blocks), count, maxLength);
+		}
+
+		/**
+		 * Grows the arena, at least doubling it, so more bytes fit after its size.
+		 * @param bytes number of bytes about to be written.
+		 */
+		private void ensure(int bytes) {
+
+			if (size + bytes > arena.length) {
+				arena = Arrays.copyOf(arena, Math.max(arena.length * 2, size + bytes));
+			}
+		}
+
+		/**
+		 * Appends a value as a varint, seven bits per byte with the high bit
+		 * 	set on every byte but the last.
+		 * @param value value that is not negative.
+		 */
+		private void writeVarint(int value) {
+
+			while (value >= 0x80) {
+				arena[size++] = (byte) (value | 0x80);
+				value >>>= 7;
+			}
+			arena[size++] = (byte) value;
+		}
+	}
+}
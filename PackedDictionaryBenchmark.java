@@ -0,0 +1,96 @@
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * Measures the heap used by a dictionary loaded into the tree, with a String
+ * 	and a node per word, and by the same dictionary loaded into a
+ * 	PackedDictionary, and compares the time of contains and prefix lookups.
+ * 	Usage: java PackedDictionaryBenchmark dictionary [lookups]
+ * @author Adisa Narula
+ */
+public class PackedDictionaryBenchmark {
+
+	public static void main(String[] args) throws IOException {
+
+		if (args.length == 0) {
+			System.err.println("Usage: java PackedDictionaryBenchmark dictionary [lookups]");
+			System.exit(0);
+		}
+		int lookups = (args.length > 1) ? Integer.parseInt(args[1]) : 1000000;
+		DictionaryLoader loader = new DictionaryLoader();
+
+		long before = usedHeap();
+		Dictionary tree = loader.load(Paths.get(args[0]));
+		long treeBytes = usedHeap() - before;
+		System.out.println("tree:   " + loader.report());
+
+		before = usedHeap();
+		Dictionary packed = loader.loadPacked(Paths.get(args[0]));
+		long packedBytes = usedHeap() - before;
+		System.out.println("packed: " + loader.report());
+
+		int words = tree.size();
+		System.out.printf("%-8s %,14d bytes %8.1f bytes/word%n", "tree", treeBytes, (double) treeBytes / words);
+		System.out.printf("%-8s %,14d bytes %8.1f bytes/word   %.1f%% of tree%n", "packed", packedBytes,
+				(double) packedBytes / words, 100.0 * packedBytes / treeBytes);
+
+		// words of the dictionary and the same words with a letter changed
+		Random random = new Random(42);
+		ArrayList<String> all = new ArrayList<String>(words);
+		for (String word : tree.wordsInRange("", String.valueOf(Character.MAX_VALUE))) {
+			all.add(word);
+		}
+		String[] keys = new String[4096];
+		for (int i = 0; i < keys.length; i++) {
+			String word = all.get(random.nextInt(all.size()));
+			keys[i] = (i % 2 == 0) ? word : word.substring(0, word.length() - 1) + (char) ('a' + random.nextInt(26));
+		}
+
+		for (int round = 0; round < 3; round++) {
+			System.out.printf("contains   tree %6.1f ns   packed %6.1f ns%n",
+					time(keys, lookups, tree::checkEquals), time(keys, lookups, packed::checkEquals));
+			System.out.printf("prefix     tree %6.1f ns   packed %6.1f ns%n",
+					time(keys, lookups, tree::prefixDictionary), time(keys, lookups, packed::prefixDictionary));
+		}
+
+		// keep both dictionaries reachable until the end
+		System.out.println("words " + tree.size() + " / " + packed.size());
+	}
+
+	interface Lookup {
+		boolean test(String key);
+	}
+
+	/**
+	 * Runs lookups over the keys and returns the average time of one lookup.
+	 */
+	private static double time(String[] keys, int lookups, Lookup lookup) {
+
+		int found = 0;
+		long start = System.nanoTime();
+		for (int i = 0; i < lookups; i++) {
+			if (lookup.test(keys[i & (keys.length - 1)])) {
+				found++;
+			}
+		}
+		long elapsed = System.nanoTime() - start;
+		sink += found;
+		return (double) elapsed / lookups;
+	}
+
+	/**
+	 * Returns the heap in use after collecting garbage a few times.
+	 */
+	private static long usedHeap() {
+
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 4; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	// keeps lookups from being optimized away
+	private static volatile int sink;
+}
@@ -0,0 +1,53 @@
+import java.util.*;
+
+/**
+ * Measures how the parallel bulk build of AVLTree scales with the number
+ * 	of threads, compared with the sequential fromSorted build of the same
+ * 	sorted array.
+ * 	Usage: java ParallelBuildBenchmark [number of keys] [sequential cutoff]
+ * @author Adisa Narula
+ */
+public class ParallelBuildBenchmark {
+
+	public static void main(String[] args) {
+
+		int count = (args.length > 0) ? Integer.parseInt(args[0]) : 5000000;
+		int cutoff = (args.length > 1) ? Integer.parseInt(args[1]) : AVLTree.DEFAULT_SEQUENTIAL_CUTOFF;
+		int cores = Runtime.getRuntime().availableProcessors();
+
+		// sorted keys of the same width so that string order matches numeric order
+		String[] keys = new String[count];
+		for (int i = 0; i < count; i++) {
+			keys[i] = String.format("%010d", i);
+		}
+
+		System.out.println("Keys: " + count + ", cutoff: " + cutoff + ", cores: " + cores);
+
+		double sequential = best(() -> AVLTree.fromSorted(keys));
+		System.out.printf("%-12s %8.1f ms%n", "sequential", sequential);
+
+		// powers of two up to the number of cores, and the number of cores itself
+		for (int threads = 1; threads <= cores; threads = (threads < cores && threads * 2 > cores) ? cores : threads * 2) {
+			final int parallelism = threads;
+			double parallel = best(() -> AVLTree.fromSortedParallel(keys, parallelism, cutoff));
+			System.out.printf("%2d thread(s) %8.1f ms   speedup %.2fx%n", threads, parallel, sequential / parallel);
+		}
+	}
+
+	/**
+	 * Runs a build a few times and returns the fastest time.
+	 * @param build tree build to time.
+	 * @return fastest time in milliseconds.
+	 */
+	private static double best(Runnable build) {
+
+		long best = Long.MAX_VALUE;
+		for (int round = 0; round < 5; round++) {
+			System.gc();
+			long start = System.nanoTime();
+			build.run();
+			best = Math.min(best, System.nanoTime() - start);
+		}
+		return best / 1e6;
+	}
+}
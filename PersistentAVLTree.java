@@ -0,0 +1,389 @@
+import java.util.*;
+
+/**
+ * PersistentAVLTree class is a copy-on-write AVL tree. Its nodes never change
+ * 	after they are created: add and remove copy only the nodes on the path from
+ * 	the root to the changed node (and the few nodes a rotation touches), share
+ * 	every other node with the previous version and then publish the new root.
+ *
+ * 	Because old roots stay valid, snapshot() is O(1): it returns another tree
+ * 	that shares the current root. add and remove update this tree and return
+ * 	the version they made the same way, so a caller can keep every version. Readers that hold a snapshot, or that are in
+ * 	the middle of a contains or an iteration, keep seeing the version they
+ * 	started with and never see a half finished update. Updates on one tree are
+ * 	serialized; lookups never lock. Like AVLTree, equal data is added to the
+ * 	left subtree, so the tree can hold duplicates.
+ * @author Adisa Narula
+ * @param <T>
+ */
+public class PersistentAVLTree <T extends Comparable <T>> implements Iterable <T> {
+
+	// current version, replaced as a whole by every update
+	private volatile Node<T> root;
+
+	/**
+	 * Immutable node. Height and size are computed once from the children.
+	 */
+	private static final class Node <T> {
+
+		final T data;
+		final Node<T> left;
+		final Node<T> right;
+		final int height;
+		final int size;
+
+		/**
+		 * Constructor creates a node over two subtrees that already exist.
+		 * @param data that is stored in the node.
+		 * @param left left subtree, or null.
+		 * @param right right subtree, or null.
+		 */
+		Node(T data, Node<T> left, Node<T> right) {
+
+			this.data = data;
+			this.left = left;
+			this.right = right;
+			this.height = Math.max(height(left), height(right)) + 1;
+			this.size = size(left) + size(right) + 1;
+		}
+	}
+
+	/**
+	 * Constructor creates an empty tree.
+	 */
+	public PersistentAVLTree() {
+
+		this.root = null;
+	}
+
+	/**
+	 * Constructor creates a tree that shares an existing version.
+	 * @param root root of the version.
+	 */
+	private PersistentAVLTree(Node<T> root) {
+
+		this.root = root;
+	}
+
+	/**
+	 * Creates a balanced tree from data in ascending order in linear time.
+	 * 	Null elements are skipped and input that is not sorted is sorted first.
+	 * @param data elements in ascending order.
+	 * @return balanced tree containing the data.
+	 */
+	public static <T extends Comparable<T>> PersistentAVLTree<T> fromSorted(T[] data) {
+
+		T[] values = Arrays.copyOf(data, data.length);
+		int count = 0;
+		boolean sorted = true;
+		for (int i = 0; i < values.length; i++) {
+			if (values[i] != null) {
+				if (count > 0 && values[count - 1].compareTo(values[i]) > 0) {
+					sorted = false;
+				}
+				values[count++] = values[i];
+			}
+		}
+		if (!sorted) {
+			Arrays.sort(values, 0, count);
+		}
+		return new PersistentAVLTree<T>(build(values, 0, count));
+	}
+
+	/**
+	 * Recursively builds a balanced subtree from a sorted range.
+	 * @param values sorted elements.
+	 * @param from first index of the range.
+	 * @param to index after the range.
+	 * @return root of the subtree, or null for an empty range.
+	 */
+	private static <T> Node<T> build(T[] values, int from, int to) {
+
+		if (from == to) {
+			return null;
+		}
+		int mid = from + (to - from - 1) / 2;
+		return new Node<T>(values[mid], build(values, from, mid), build(values, mid + 1, to));
+	}
+
+	/**
+	 * Returns a tree that shares the current version of this tree. Later
+	 * 	updates to either tree do not affect the other one.
+	 * @return snapshot of this tree.
+	 */
+	public PersistentAVLTree<T> snapshot() {
+
+		return new PersistentAVLTree<T>(root);
+	}
+
+	/**
+	 * Adds data to the tree by copying the path to the new node.
+	 * @param data that is inserted into the tree.
+	 * @return the new version, which later updates to this tree do not change.
+	 */
+	public synchronized PersistentAVLTree<T> add(T data) {
+
+		// if data not null
+		if (data != null) {
+			root = insert(root, data);
+		}
+		return new PersistentAVLTree<T>(root);
+	}
+
+	/**
+	 * Removes one occurrence of data from the tree by copying the path
+	 * 	to the removed node. Nothing is copied when data is not in the tree.
+	 * @param data that is removed from the tree.
+	 * @return the new version, which later updates to this tree do not change.
+	 */
+	public synchronized PersistentAVLTree<T> remove(T data) {
+
+		// if data not null
+		if (data != null) {
+			root = delete(root, data);
+		}
+		return new PersistentAVLTree<T>(root);
+	}
+
+	/**
+	 * Checks whether data exists in the current version of the tree.
+	 * @param data that is searched for in the tree.
+	 * @return true if data is found in the tree.
+	 */
+	public boolean contains(T data) {
+
+		Node<T> node = root;
+
+		while (node != null) {
+
+			int cmp = data.compareTo(node.data);
+			if (cmp < 0) {
+				node = node.left;
+			}
+			else if (cmp > 0) {
+				node = node.right;
+			}
+			else {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the number of elements in the current version.
+	 * @return number of elements in the tree.
+	 */
+	public int size() {
+
+		return size(root);
+	}
+
+	/**
+	 * Returns a new subtree with data inserted, equal data going left.
+	 * @param node root of the subtree, which is not changed.
+	 * @param data that is inserted.
+	 * @return root of the new subtree.
+	 */
+	private Node<T> insert(Node<T> node, T data) {
+
+		if (node == null) {
+			return new Node<T>(data, null, null);
+		}
+		if (data.compareTo(node.data) <= 0) {
+			return balance(node.data, insert(node.left, data), node.right);
+		}
+		return balance(node.data, node.left, insert(node.right, data));
+	}
+
+	/**
+	 * Returns a new subtree with one occurrence of data removed, or
+	 * 	the same subtree if data is not in it.
+	 * @param node root of the subtree, which is not changed.
+	 * @param data that is removed.
+	 * @return root of the new subtree, or node if nothing was removed.
+	 */
+	private Node<T> delete(Node<T> node, T data) {
+
+		if (node == null) {
+			return null;
+		}
+
+		int cmp = data.compareTo(node.data);
+		if (cmp < 0) {
+			Node<T> left = delete(node.left, data);
+			return (left == node.left) ? node : balance(node.data, left, node.right);
+		}
+		if (cmp > 0) {
+			Node<T> right = delete(node.right, data);
+			return (right == node.right) ? node : balance(node.data, node.left, right);
+		}
+
+		// node with at most one child
+		if (node.left == null) {
+			return node.right;
+		}
+		if (node.right == null) {
+			return node.left;
+		}
+
+		// predecessor takes the place of the removed node
+		Node<T> predecessor = node.left;
+		while (predecessor.right != null) {
+			predecessor = predecessor.right;
+		}
+		return balance(predecessor.data, removeLargest(node.left), node.right);
+	}
+
+	/**
+	 * Returns a new subtree without its largest node.
+	 * @param node root of a subtree that is not empty.
+	 * @return root of the new subtree.
+	 */
+	private Node<T> removeLargest(Node<T> node) {
+
+		if (node.right == null) {
+			return node.left;
+		}
+		return balance(node.data, node.left, removeLargest(node.right));
+	}
+
+	/**
+	 * Creates a node from data and two subtrees whose heights differ by at most
+	 * 	two, rotating new copies of the nodes when they differ by two.
+	 * @param data that is stored in the node.
+	 * @param left left subtree.
+	 * @param right right subtree.
+	 * @return root of the balanced subtree.
+	 */
+	private Node<T> balance(T data, Node<T> left, Node<T> right) {
+
+		int factor = height(right) - height(left);
+
+		// imbalance on the left side
+		if (factor == -2) {
+			if (height(left.left) >= height(left.right)) {
+				// left left case
+				return new Node<T>(left.data, left.left, new Node<T>(data, left.right, right));
+			}
+			// left right case
+			Node<T> lr = left.right;
+			return new Node<T>(lr.data, new Node<T>(left.data, left.left, lr.left), new Node<T>(data, lr.right, right));
+		}
+
+		// imbalance on the right side
+		if (factor == 2) {
+			if (height(right.right) >= height(right.left)) {
+				// right right case
+				return new Node<T>(right.data, new Node<T>(data, left, right.left), right.right);
+			}
+			// right left case
+			Node<T> rl = right.left;
+			return new Node<T>(rl.data, new Node<T>(data, left, rl.left), new Node<T>(right.data, rl.right, right.right));
+		}
+
+		return new Node<T>(data, left, right);
+	}
+
+	/**
+	 * Returns the height of a subtree.
+	 * @param node root of the subtree.
+	 * @return height, -1 for an empty subtree.
+	 */
+	private static int height(Node<?> node) {
+
+		return (node == null) ? -1 : node.height;
+	}
+
+	/**
+	 * Returns the number of elements in a subtree.
+	 * @param node root of the subtree.
+	 * @return size, 0 for an empty subtree.
+	 */
+	private static int size(Node<?> node) {
+
+		return (node == null) ? 0 : node.size;
+	}
+
+	/**
+	 * Iterator over the version of the tree at the time it is created. Later
+	 * 	updates never disturb it, so it does not fail fast; its remove method
+	 * 	removes the data from the tree without affecting the iteration.
+	 * @return iterator<T> object
+	 */
+	@Override
+	public Iterator<T> iterator() {
+
+		return new SnapshotIterator(root);
+	}
+
+	/**
+	 * Lazy in order iterator with a stack of the nodes on the current path.
+	 */
+	private class SnapshotIterator implements Iterator<T> {
+
+		private final ArrayDeque<Node<T>> stack = new ArrayDeque<Node<T>>();
+		private T dataReturned;
+
+		/**
+		 * Constructor starts at the smallest element of a version.
+		 * @param version root of the version that is iterated.
+		 */
+		SnapshotIterator(Node<T> version) {
+
+			pushLeft(version);
+		}
+
+		/**
+		 * Checks whether the version has elements that were not returned.
+		 * @return true if there is another element.
+		 */
+		@Override
+		public boolean hasNext() {
+
+			return !stack.isEmpty();
+		}
+
+		/**
+		 * Returns the next element in ascending order.
+		 * @return the next element.
+		 */
+		@Override
+		public T next() {
+
+			if (stack.isEmpty()) {
+				throw new NoSuchElementException("No more elements");
+			}
+			Node<T> node = stack.pop();
+			pushLeft(node.right);
+			dataReturned = node.data;
+			return dataReturned;
+		}
+
+		/**
+		 * Removes the last element returned from the tree. The version being
+		 * 	iterated does not change.
+		 */
+		@Override
+		public void remove() {
+
+			if (dataReturned == null) {
+				throw new IllegalStateException("remove() must follow next()");
+			}
+			PersistentAVLTree.this.remove(dataReturned);
+			dataReturned = null;
+		}
+
+		/**
+		 * Pushes a node and its chain of left children.
+		 * @param node first node pushed, or null.
+		 */
+		private void pushLeft(Node<T> node) {
+
+			while (node != null) {
+				stack.push(node);
+				node = node.left;
+			}
+		}
+	}
+}
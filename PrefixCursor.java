@@ -0,0 +1,238 @@
+import java.util.Arrays;
+
+/**
+ * PrefixCursor class walks a dictionary one letter at a time, the way a trie
+ * 	would be walked. The words starting with the current prefix form a
+ * 	contiguous range of the sorted word array, so adding a letter only has to
+ * 	search inside the range of the shorter prefix and only compares the single
+ * 	character at the new position. Removing the last letter goes back to the
+ * 	range that was saved for the shorter prefix, without any search.
+ *
+ * 	A dictionary that has no sorted word array (one that searches a word index)
+ * 	is searched with prefixDictionary and checkEquals instead. The prefix is
+ * 	passed as a view of the letters, so a prefix the dictionary's filter
+ * 	rejects does not create a string.
+ * @author Adisa Narula
+ */
+public class PrefixCursor {
+
+	// sorted words without duplicates, or null to search the dictionary
+	private final String[] words;
+	private final Dictionary dictionary;
+
+	// range of words that start with the first depth letters, for every depth
+	private int[] low;
+	private int[] high;
+
+	// letters of the current prefix
+	private char[] prefix;
+	private int depth;
+
+	// the letters as a character sequence for the dictionary, when words is null
+	private final Letters letters = new Letters();
+
+	/**
+	 * Constructor creates a cursor at the empty prefix.
+	 * @param words sorted words without duplicates, or null.
+	 * @param dictionary dictionary searched when words is null.
+	 */
+	PrefixCursor(String[] words, Dictionary dictionary) {
+
+		this.words = words;
+		this.dictionary = dictionary;
+		this.low = new int[16];
+		this.high = new int[16];
+		this.prefix = new char[16];
+		this.depth = 0;
+
+		low[0] = 0;
+		high[0] = (words == null) ? 0 : words.length;
+	}
+
+	/**
+	 * Adds a letter to the prefix if some word starts with the longer prefix.
+	 * @param letter that is added to the end of the prefix.
+	 * @return true if the letter was added, false if no word starts with the
+	 * 	longer prefix, in which case the cursor does not move.
+	 */
+	public boolean push(char letter) {
+
+		if (depth + 1 == low.length) {
+			grow();
+		}
+		prefix[depth] = letter;
+
+		// no sorted words, ask the dictionary
+		if (words == null) {
+			letters.length = depth + 1;
+			if (!dictionary.prefixDictionary(letters)) {
+				return false;
+			}
+			depth++;
+			return true;
+		}
+
+		int first = firstAtLeast(low[depth], high[depth], letter);
+		if (TreeMetrics.ENABLED && first < high[depth]) {
+			TreeMetrics.compared(1);
+		}
+		if (first == high[depth] || words[first].charAt(depth) != letter) {
+			return false;
+		}
+		// range ends at the first word with a larger letter
+		int end = (letter == Character.MAX_VALUE) ? high[depth] : firstAtLeast(first, high[depth], (char) (letter + 1));
+
+		depth++;
+		low[depth] = first;
+		high[depth] = end;
+		return true;
+	}
+
+	/**
+	 * Removes the last letter of the prefix.
+	 * @throws IllegalStateException if the prefix is empty.
+	 */
+	public void pop() {
+
+		if (depth == 0) {
+			throw new IllegalStateException("Prefix is empty");
+		}
+		depth--;
+	}
+
+	/**
+	 * Returns the number of letters in the prefix.
+	 * @return length of the prefix.
+	 */
+	public int depth() {
+
+		return depth;
+	}
+
+	/**
+	 * Checks whether the prefix is a word of the dictionary. The prefix
+	 * 	itself sorts before every longer word in its range, so only the first
+	 * 	word of the range has to be checked.
+	 * @return true if the prefix is a word.
+	 */
+	public boolean isWord() {
+
+		if (words == null) {
+			letters.length = depth;
+			return dictionary.checkEquals(letters);
+		}
+		return (low[depth] < high[depth] && words[low[depth]].length() == depth);
+	}
+
+	/**
+	 * Returns the prefix as a string. When the prefix is a word this is the
+	 * 	dictionary's own string, so no new string is created.
+	 * @return the current prefix.
+	 */
+	public String word() {
+
+		if (words != null && low[depth] < high[depth] && words[low[depth]].length() == depth) {
+			return words[low[depth]];
+		}
+		return new String(prefix, 0, depth);
+	}
+
+	/**
+	 * Binary search for the first word in a range whose character at the
+	 * 	current depth is not smaller than letter. Every word in the range starts
+	 * 	with the current prefix, and a word that is exactly the prefix counts as
+	 * 	smaller than every letter. Every character compared counts as one
+	 * 	comparison when metrics are enabled.
+	 * @param from first index of the range.
+	 * @param to index after the range.
+	 * @param letter character to search for.
+	 * @return index of the first such word, or to if there is none.
+	 */
+	private int firstAtLeast(int from, int to, char letter) {
+
+		int compared = 0;
+		while (from < to) {
+
+			int mid = (from + to) >>> 1;
+			compared++;
+			String word = words[mid];
+
+			if (word.length() <= depth || word.charAt(depth) < letter) {
+				from = mid + 1;
+			}
+			else {
+				to = mid;
+			}
+		}
+		if (TreeMetrics.ENABLED) {
+			TreeMetrics.compared(compared);
+		}
+		return from;
+	}
+
+	/**
+	 * Doubles the space for the prefix and its ranges.
+	 */
+	private void grow() {
+
+		low = Arrays.copyOf(low, low.length * 2);
+		high = Arrays.copyOf(high, high.length * 2);
+		prefix = Arrays.copyOf(prefix, prefix.length * 2);
+	}
+
+	/**
+	 * View of the first length letters of the prefix, reused for every
+	 * 	lookup. It is only valid until the cursor moves.
+	 */
+	private class Letters implements CharSequence {
+
+		int length;
+
+		/**
+		 * Returns the number of letters in the view.
+		 * @return length of the view.
+		 */
+		@Override
+		public int length() {
+
+			return length;
+		}
+
+		/**
+		 * Returns a letter of the view.
+		 * @param index of the letter.
+		 * @return the letter.
+		 * @throws IndexOutOfBoundsException if index is not less than length.
+		 */
+		@Override
+		public char charAt(int index) {
+
+			if (index < 0 || index >= length) {
+				throw new IndexOutOfBoundsException("Index " + index + " of length " + length);
+			}
+			return prefix[index];
+		}
+
+		/**
+		 * Copies some of the letters to a new string.
+		 * @param start first index, inclusive.
+		 * @param end last index, exclusive.
+		 * @return the letters from start to end.
+		 */
+		@Override
+		public CharSequence subSequence(int start, int end) {
+
+			return toString().substring(start, end);
+		}
+
+		/**
+		 * Copies the letters to a new string.
+		 * @return the letters of the view.
+		 */
+		@Override
+		public String toString() {
+
+			return new String(prefix, 0, length);
+		}
+	}
+}
@@ -0,0 +1,231 @@
+/**
+ * PrefixFilter class is a Bloom filter over every prefix of the words of a
+ * 	dictionary, up to a maximum length. It answers whether some word might
+ * 	start with a prefix: false means no word does, true means one probably
+ * 	does and the dictionary has to be searched to be sure. Most prefixes that
+ * 	are not in the dictionary are rejected after a few bit probes, without a
+ * 	search.
+ *
+ * 	A prefix longer than the maximum length is checked by its first maxLength
+ * 	characters, which every word starting with it also starts with.
+ *
+ * 	Each prefix is hashed one character at a time, so all the prefixes of a
+ * 	word are hashed in one pass over it. The bit positions are taken from two
+ * 	halves of the hash as h1 + i * h2, which is as good as k independent
+ * 	hashes for a Bloom filter. The filter is only read after it is built, so
+ * 	it can be shared by any number of threads.
+ * @author Adisa Narula
+ */
+public class PrefixFilter {
+
+	// longest prefix put in the filter by default
+	static final int DEFAULT_MAX_LENGTH = 8;
+
+	// bits per prefix by default, about a 1% false positive rate
+	static final int DEFAULT_BITS_PER_PREFIX = 10;
+
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	private final long[] bits;
+	private final long mask;
+	private final int hashes;
+	private final int maxLength;
+	private final long prefixes;
+
+	/**
+	 * Constructor creates an empty filter.
+	 * @param prefixes number of prefixes that will be added.
+	 * @param maxLength longest prefix added.
+	 * @param bitsPerPrefix bits of the filter per prefix.
+	 */
+	private PrefixFilter(long prefixes, int maxLength, int bitsPerPrefix) {
+
+		// a power of two number of bits, so positions are taken with a mask
+		long size = Long.highestOneBit(Math.max(64, prefixes * bitsPerPrefix - 1)) << 1;
+		this.bits = new long[(int) Math.min(size >>> 6, Integer.MAX_VALUE - 8)];
+		this.mask = ((long) bits.length << 6) - 1;
+		this.hashes = Math.max(1, (int) Math.round((double) (mask + 1) / Math.max(1, prefixes) * Math.log(2)));
+		this.maxLength = maxLength;
+		this.prefixes = prefixes;
+	}
+
+	/**
+	 * Builds a filter over every prefix of the words, from one character up
+	 * 	to maxLength characters. The words are read twice, once to count the
+	 * 	distinct prefixes and once to add them.
+	 * @param words sorted words, such as the words of a dictionary.
+	 * @param maxLength longest prefix added.
+	 * @param bitsPerPrefix bits of the filter per prefix.
+	 * @return filter of the prefixes.
+	 * @throws IllegalArgumentException if maxLength or bitsPerPrefix is less than one.
+	 */
+	public static PrefixFilter of(Iterable<String> words, int maxLength, int bitsPerPrefix) {
+
+		if (maxLength < 1) {
+			throw new IllegalArgumentException("Prefix length must be at least one: " + maxLength);
+		}
+		if (bitsPerPrefix < 1) {
+			throw new IllegalArgumentException("Bits per prefix must be at least one: " + bitsPerPrefix);
+		}
+
+		// prefixes not shared with the word before are new, when the words are sorted
+		long count = 0;
+		String previous = "";
+		for (String word : words) {
+			int length = Math.min(word.length(), maxLength);
+			count += Math.max(0, length - commonPrefix(previous, word, length));
+			previous = word;
+		}
+
+		PrefixFilter filter = new PrefixFilter(count, maxLength, bitsPerPrefix);
+		for (String word : words) {
+			filter.addPrefixes(word);
+		}
+		return filter;
+	}
+
+	/**
+	 * Checks whether some word might start with the prefix. The prefix can be
+	 * 	any character sequence, such as one a caller builds in place, and is
+	 * 	hashed without being copied.
+	 * @param prefix that is checked.
+	 * @return false if no word starts with the prefix, true if one may.
+	 */
+	public boolean mightContainPrefix(CharSequence prefix) {
+
+		int length = Math.min(prefix.length(), maxLength);
+		if (length == 0) {
+			return true;
+		}
+		long hash = FNV_OFFSET;
+		for (int i = 0; i < length; i++) {
+			hash = (hash ^ prefix.charAt(i)) * FNV_PRIME;
+		}
+		return test(mix(hash));
+	}
+
+	/**
+	 * Returns the longest prefix in the filter.
+	 * @return maximum prefix length.
+	 */
+	public int maxLength() {
+
+		return maxLength;
+	}
+
+	/**
+	 * Returns the number of distinct prefixes in the filter.
+	 * @return prefixes added.
+	 */
+	public long prefixes() {
+
+		return prefixes;
+	}
+
+	/**
+	 * Returns the size of the filter.
+	 * @return size in bytes.
+	 */
+	public long bytes() {
+
+		return 8L * bits.length;
+	}
+
+	/**
+	 * Returns the false positive rate expected for the number of prefixes,
+	 * 	bits and hashes of the filter.
+	 * @return probability that a prefix of no word passes the filter.
+	 */
+	public double expectedFalsePositiveRate() {
+
+		return Math.pow(1 - Math.exp(-(double) hashes * prefixes / (mask + 1)), hashes);
+	}
+
+	@Override
+	public String toString() {
+
+		return String.format("prefix filter %d prefixes up to %d letters, %d bytes, %d hashes, %.2f%% expected false positives",
+				prefixes, maxLength, bytes(), hashes, 100 * expectedFalsePositiveRate());
+	}
+
+	/**
+	 * Adds every prefix of a word up to maxLength characters.
+	 * @param word whose prefixes are added.
+	 */
+	private void addPrefixes(String word) {
+
+		int length = Math.min(word.length(), maxLength);
+		long hash = FNV_OFFSET;
+		for (int i = 0; i < length; i++) {
+			hash = (hash ^ word.charAt(i)) * FNV_PRIME;
+			set(mix(hash));
+		}
+	}
+
+	/**
+	 * Sets the bits of a prefix, at h1 + i * h2 for each of the hashes, with
+	 * 	h2 odd so the positions do not repeat before wrapping around the mask.
+	 * @param hash mixed hash of the prefix.
+	 */
+	private void set(long hash) {
+
+		long h1 = hash;
+		long h2 = (hash >>> 32) | 1;
+		for (int i = 0; i < hashes; i++) {
+			long bit = (h1 + i * h2) & mask;
+			bits[(int) (bit >>> 6)] |= 1L << bit;
+		}
+	}
+
+	/**
+	 * Checks the bits of a prefix at the same positions as set.
+	 * @param hash mixed hash of the prefix.
+	 * @return false as soon as one bit is clear, true if all are set.
+	 */
+	private boolean test(long hash) {
+
+		long h1 = hash;
+		long h2 = (hash >>> 32) | 1;
+		for (int i = 0; i < hashes; i++) {
+			long bit = (h1 + i * h2) & mask;
+			if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Spreads the bits of an FNV hash, which are weak in the low bits the
+	 * 	mask keeps, with the finalizer of MurmurHash3.
+	 * @param hash FNV hash of a prefix.
+	 * @return hash whose bits all depend on every bit of the input.
+	 */
+	private static long mix(long hash) {
+
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+
+	/**
+	 * Returns the number of leading characters two strings share, up to limit.
+	 * @param a first string.
+	 * @param b second string.
+	 * @param limit most characters compared.
+	 * @return length of the common prefix.
+	 */
+	private static int commonPrefix(String a, String b, int limit) {
+
+		int end = Math.min(limit, Math.min(a.length(), b.length()));
+		int i = 0;
+		while (i < end && a.charAt(i) == b.charAt(i)) {
+			i++;
+		}
+		return i;
+	}
+}
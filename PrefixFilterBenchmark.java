@@ -0,0 +1,176 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * Measures how much the prefix filter speeds up prefixDictionary on a real
+ * 	word list, and how many prefixes of no word it lets through. The prefixes
+ * 	are the ones a rack search asks for: every letter of random racks is tried
+ * 	after every prefix that some word starts with, so most of them are misses.
+ * 	They are looked up in the tree and in a packed dictionary, each with and
+ * 	without the filter, and whole racks are solved on the packed dictionary,
+ * 	whose cursor asks prefixDictionary for every letter.
+ * 	Usage: java PrefixFilterBenchmark dictionary [max prefix length] [bits per prefix] [racks]
+ * @author Adisa Narula
+ */
+public class PrefixFilterBenchmark {
+
+	// copies of each letter a to z in a bag of word game tiles
+	private static final int[] TILES = { 9, 2, 2, 4, 12, 2, 3, 2, 9, 1, 1, 4, 2, 6, 8, 2, 1, 6, 4, 6, 4, 2, 2, 1, 2, 1 };
+
+	// letters per rack
+	private static final int RACK_LENGTH = 9;
+
+	public static void main(String[] args) throws IOException {
+
+		if (args.length == 0) {
+			System.err.println("Usage: java PrefixFilterBenchmark dictionary [max prefix length] [bits per prefix] [racks]");
+			System.exit(0);
+		}
+		Path file = Paths.get(args[0]);
+		int maxLength = (args.length > 1) ? Integer.parseInt(args[1]) : PrefixFilter.DEFAULT_MAX_LENGTH;
+		int bitsPerPrefix = (args.length > 2) ? Integer.parseInt(args[2]) : PrefixFilter.DEFAULT_BITS_PER_PREFIX;
+		int racks = (args.length > 3) ? Integer.parseInt(args[3]) : 200;
+
+		DictionaryLoader loader = new DictionaryLoader();
+		Dictionary tree = loader.load(file);
+		Dictionary filteredTree = loader.load(file);
+		Dictionary packed = loader.loadPacked(file);
+		Dictionary filteredPacked = loader.loadPacked(file);
+
+		long start = System.nanoTime();
+		PrefixFilter filter = filteredTree.buildPrefixFilter(maxLength, bitsPerPrefix);
+		double buildMs = (System.nanoTime() - start) / 1e6;
+		filteredPacked.buildPrefixFilter(maxLength, bitsPerPrefix);
+		System.out.printf("%s, built in %.1f ms%n", filter, buildMs);
+
+		List<String[]> drawn = new ArrayList<String[]>();
+		Random random = new Random(42);
+		for (int r = 0; r < racks; r++) {
+			drawn.add(draw(random));
+		}
+		String[] prefixes = searchedPrefixes(tree, drawn);
+
+		// prefixes of no word that the filter lets through
+		int misses = 0;
+		int passed = 0;
+		for (String prefix : prefixes) {
+			if (!tree.prefixDictionary(prefix)) {
+				misses++;
+				if (filter.mightContainPrefix(prefix)) {
+					passed++;
+				}
+			}
+		}
+		System.out.printf("%,d prefixes searched, %.1f%% misses, %.2f%% of misses pass the filter%n",
+				prefixes.length, 100.0 * misses / prefixes.length, 100.0 * passed / Math.max(1, misses));
+
+		for (int round = 0; round < 3; round++) {
+
+			double treeNs = time(prefixes, tree);
+			double filteredTreeNs = time(prefixes, filteredTree);
+			double packedNs = time(prefixes, packed);
+			double filteredPackedNs = time(prefixes, filteredPacked);
+			System.out.printf("prefixDictionary tree %6.1f ns  filtered %6.1f ns (%.2fx)   packed %6.1f ns  filtered %6.1f ns (%.2fx)%n",
+					treeNs, filteredTreeNs, treeNs / filteredTreeNs, packedNs, filteredPackedNs, packedNs / filteredPackedNs);
+
+			double solveMs = solve(drawn, packed);
+			double filteredSolveMs = solve(drawn, filteredPacked);
+			System.out.printf("solve packed      %8.3f ms per rack  filtered %8.3f ms per rack (%.2fx)%n",
+					solveMs, filteredSolveMs, solveMs / filteredSolveMs);
+		}
+	}
+
+	/**
+	 * Draws tiles from the bag without putting them back.
+	 */
+	private static String[] draw(Random random) {
+
+		StringBuilder tiles = new StringBuilder();
+		for (int i = 0; i < TILES.length; i++) {
+			for (int j = 0; j < TILES[i]; j++) {
+				tiles.append((char) ('a' + i));
+			}
+		}
+		String[] rack = new String[RACK_LENGTH];
+		for (int i = 0; i < rack.length; i++) {
+			int tile = random.nextInt(tiles.length());
+			rack[i] = String.valueOf(tiles.charAt(tile));
+			tiles.deleteCharAt(tile);
+		}
+		return rack;
+	}
+
+	/**
+	 * Returns every prefix a search of the racks asks for: each letter left
+	 * 	in the rack after each prefix that some word starts with.
+	 */
+	private static String[] searchedPrefixes(Dictionary dictionary, List<String[]> racks) {
+
+		ArrayList<String> prefixes = new ArrayList<String>();
+		for (String[] rack : racks) {
+			int[] counts = new int[26];
+			for (String letter : rack) {
+				counts[letter.charAt(0) - 'a']++;
+			}
+			search(dictionary, new StringBuilder(), counts, prefixes);
+		}
+		return prefixes.toArray(new String[0]);
+	}
+
+	private static void search(Dictionary dictionary, StringBuilder prefix, int[] counts, List<String> prefixes) {
+
+		for (int i = 0; i < counts.length; i++) {
+			if (counts[i] == 0) {
+				continue;
+			}
+			prefix.append((char) ('a' + i));
+			String key = prefix.toString();
+			prefixes.add(key);
+			if (dictionary.prefixDictionary(key)) {
+				counts[i]--;
+				search(dictionary, prefix, counts, prefixes);
+				counts[i]++;
+			}
+			prefix.setLength(prefix.length() - 1);
+		}
+	}
+
+	/**
+	 * Looks up every prefix and returns the average time of one lookup.
+	 */
+	private static double time(String[] prefixes, Dictionary dictionary) {
+
+		int found = 0;
+		long start = System.nanoTime();
+		for (int repeat = 0; repeat < 5; repeat++) {
+			for (String prefix : prefixes) {
+				if (dictionary.prefixDictionary(prefix)) {
+					found++;
+				}
+			}
+		}
+		long elapsed = System.nanoTime() - start;
+		sink += found;
+		return (double) elapsed / (5.0 * prefixes.length);
+	}
+
+	/**
+	 * Solves every rack and returns the average time of one rack.
+	 */
+	private static double solve(List<String[]> racks, Dictionary dictionary) {
+
+		int words = 0;
+		long start = System.nanoTime();
+		for (String[] rack : racks) {
+			words += new SetLetters(rack, dictionary).getArray().size();
+		}
+		long elapsed = System.nanoTime() - start;
+		sink += words;
+		return elapsed / 1e6 / racks.size();
+	}
+
+	// keeps lookups from being optimized away
+	private static volatile int sink;
+}
@@ -0,0 +1,103 @@
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * Measures how long it takes to find every word in long racks. The racks are
+ * 	drawn at random from the letter distribution of a word game, so they have
+ * 	the repeated letters real racks have, and each rack is solved with every
+ * 	kind of search.
+ * 	Usage: java RackBenchmark dictionary [rack length] [number of racks]
+ * @author Adisa Narula
+ */
+public class RackBenchmark {
+
+	// copies of each letter a to z in a bag of word game tiles
+	private static final int[] TILES = { 9, 2, 2, 4, 12, 2, 3, 2, 9, 1, 1, 4, 2, 6, 8, 2, 1, 6, 4, 6, 4, 2, 2, 1, 2, 1 };
+
+	public static void main(String[] args) {
+
+		if (args.length == 0) {
+			System.err.println("Usage: java RackBenchmark dictionary [rack length] [number of racks]");
+			System.exit(0);
+		}
+		int length = (args.length > 1) ? Integer.parseInt(args[1]) : 20;
+		int racks = (args.length > 2) ? Integer.parseInt(args[2]) : 20;
+		int cores = Runtime.getRuntime().availableProcessors();
+
+		Dictionary dictionary;
+		if (args[0].endsWith(MappedDictionary.EXTENSION)) {
+			try {
+				dictionary = new Dictionary(MappedDictionary.open(Paths.get(args[0])));
+			}
+			catch (java.io.IOException e) {
+				System.err.println("Index could not be opened: " + e.getMessage());
+				return;
+			}
+		}
+		else {
+			dictionary = FindWord.loadFile(args[0]);
+		}
+
+		StringBuilder bag = new StringBuilder();
+		for (int i = 0; i < TILES.length; i++) {
+			for (int j = 0; j < TILES[i]; j++) {
+				bag.append((char) ('a' + i));
+			}
+		}
+
+		Random random = new Random(42);
+		List<String[]> drawn = new ArrayList<String[]>();
+		for (int r = 0; r < racks; r++) {
+			drawn.add(draw(bag, length, random));
+		}
+
+		System.out.println("Racks: " + racks + " of " + length + " letters, cores: " + cores);
+
+		report("permutations", drawn, rack -> new SetLetters(rack, dictionary).getArray().size());
+		report("parallel", drawn, rack -> new SetLetters(rack, dictionary, cores).getArray().size());
+		report("signatures", drawn, rack -> new SetLetters(rack, dictionary, SetLetters.Search.SIGNATURES).getArray().size());
+	}
+
+	interface Solver {
+		int solve(String[] rack);
+	}
+
+	/**
+	 * Draws tiles from the bag without putting them back.
+	 * @return rack of single letters.
+	 */
+	private static String[] draw(StringBuilder bag, int length, Random random) {
+
+		StringBuilder tiles = new StringBuilder(bag);
+		String[] rack = new String[Math.min(length, tiles.length())];
+		for (int i = 0; i < rack.length; i++) {
+			int tile = random.nextInt(tiles.length());
+			rack[i] = String.valueOf(tiles.charAt(tile));
+			tiles.deleteCharAt(tile);
+		}
+		return rack;
+	}
+
+	/**
+	 * Solves every rack once to warm up, then again while timing each rack,
+	 * 	and prints the median and slowest time.
+	 */
+	private static void report(String name, List<String[]> racks, Solver solver) {
+
+		for (String[] rack : racks) {
+			solver.solve(rack);
+		}
+
+		double[] times = new double[racks.size()];
+		long words = 0;
+		for (int i = 0; i < times.length; i++) {
+			long start = System.nanoTime();
+			words += solver.solve(racks.get(i));
+			times[i] = (System.nanoTime() - start) / 1e6;
+		}
+		Arrays.sort(times);
+
+		System.out.printf("%-12s median %8.1f ms   max %8.1f ms   %,8.0f words per rack%n",
+				name, times[times.length / 2], times[times.length - 1], (double) words / times.length);
+	}
+}
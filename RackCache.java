@@ -0,0 +1,317 @@
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * RackCache class keeps the words found for recently solved racks, so a rack
+ * 	that is asked for again, in any letter order, is answered without searching.
+ * 	Racks are keyed by their letters in sorted order, which is the same for
+ * 	every order of the same letters.
+ *
+ * 	The cache is bounded by weight, the number of words kept plus one per rack,
+ * 	and evicts the least recently used racks first. A rack that is not cached
+ * 	can still be answered from a cached rack with one more letter: every word
+ * 	of the smaller rack is a word of the larger one, so the words of the larger
+ * 	rack that fit in the smaller one are exactly its answer.
+ *
+ * 	The cache belongs to one dictionary at a time. When it is asked to solve
+ * 	with a different dictionary, or invalidate() is called, every rack is
+ * 	dropped, and answers that were being searched for the old dictionary are
+ * 	not stored. Lookups are made under one lock, while racks are searched
+ * 	outside it, so threads only wait for each other for the map update.
+ * @author Adisa Narula
+ */
+public class RackCache {
+
+	// default number of words kept
+	static final int DEFAULT_WEIGHT = 1 << 20;
+
+	// starts the keys of racks that have letters longer than one character
+	private static final char SEPARATOR = '\u0000';
+
+	private final long maxWeight;
+
+	// racks in least recently used order, guarded by this
+	private final LinkedHashMap<String, List<String>> entries = new LinkedHashMap<String, List<String>>(256, 0.75f, true);
+	private long weight;
+	private Dictionary dictionary;
+	private long generation;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder derived = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	/**
+	 * Constructor creates a cache of DEFAULT_WEIGHT words.
+	 */
+	public RackCache() {
+
+		this(DEFAULT_WEIGHT);
+	}
+
+	/**
+	 * Constructor creates an empty cache.
+	 * @param maxWeight most words kept, counting one extra per rack.
+	 * @throws IllegalArgumentException if maxWeight is less than one.
+	 */
+	public RackCache(long maxWeight) {
+
+		if (maxWeight < 1) {
+			throw new IllegalArgumentException("Weight must be at least one: " + maxWeight);
+		}
+		this.maxWeight = maxWeight;
+	}
+
+	/**
+	 * Returns the words of two or more letters that can be made from the
+	 * 	letters, in sorted order, searching the dictionary only if neither the
+	 * 	rack nor a rack with one more letter is cached.
+	 * @param dictionary dictionary that words are searched for in.
+	 * @param letters rack of letters.
+	 * @return unmodifiable sorted list of words.
+	 */
+	public List<String> solve(Dictionary dictionary, String[] letters) {
+
+		String key = key(letters);
+		long current;
+
+		synchronized (this) {
+
+			// another dictionary, nothing cached is valid
+			if (this.dictionary != dictionary) {
+				clear();
+				this.dictionary = dictionary;
+			}
+			current = generation;
+
+			List<String> words = entries.get(key);
+			if (words != null) {
+				hits.increment();
+				return words;
+			}
+
+			words = fromLargerRack(key);
+			if (words != null) {
+				derived.increment();
+				put(key, words);
+				return words;
+			}
+		}
+
+		misses.increment();
+		List<String> words = Collections.unmodifiableList(new ArrayList<String>(new SetLetters(letters, dictionary).getArray()));
+
+		synchronized (this) {
+
+			// keep the words only if the cache was not invalidated meanwhile
+			if (generation == current && !entries.containsKey(key)) {
+				put(key, words);
+			}
+		}
+		return words;
+	}
+
+	/**
+	 * Drops every rack. Answers that are being searched when this is called
+	 * 	are returned but not stored.
+	 */
+	public synchronized void invalidate() {
+
+		clear();
+	}
+
+	/**
+	 * Returns the number of racks answered from the cache.
+	 * @return hits.
+	 */
+	public long hits() {
+
+		return hits.sum();
+	}
+
+	/**
+	 * Returns the number of racks answered from a cached rack with one more letter.
+	 * @return racks derived from larger racks.
+	 */
+	public long derived() {
+
+		return derived.sum();
+	}
+
+	/**
+	 * Returns the number of racks that were searched in the dictionary.
+	 * @return misses.
+	 */
+	public long misses() {
+
+		return misses.sum();
+	}
+
+	/**
+	 * Returns the number of racks dropped to keep the cache within its weight.
+	 * @return evictions.
+	 */
+	public long evictions() {
+
+		return evictions.sum();
+	}
+
+	/**
+	 * Returns the number of racks cached.
+	 * @return racks cached.
+	 */
+	public synchronized int size() {
+
+		return entries.size();
+	}
+
+	/**
+	 * Returns the weight of the racks cached.
+	 * @return words cached plus one per rack.
+	 */
+	public synchronized long weight() {
+
+		return weight;
+	}
+
+	/**
+	 * Formats the counters on one line.
+	 * @return cache stats.
+	 */
+	@Override
+	public String toString() {
+
+		long hit = hits();
+		long derive = derived();
+		long miss = misses();
+		long total = hit + derive + miss;
+		return String.format("cache racks %d weight %d/%d hits %d derived %d misses %d evictions %d hit rate %.1f%%",
+				size(), weight(), maxWeight, hit, derive, miss, evictions(),
+				(total == 0) ? 0.0 : 100.0 * (hit + derive) / total);
+	}
+
+	/**
+	 * Stores the words of a rack and evicts the least recently used racks
+	 * 	until the cache is within its weight. Called holding the lock.
+	 */
+	private void put(String key, List<String> words) {
+
+		entries.put(key, words);
+		weight += words.size() + 1;
+
+		Iterator<List<String>> eldest = entries.values().iterator();
+		while (weight > maxWeight && eldest.hasNext()) {
+			List<String> evicted = eldest.next();
+			eldest.remove();
+			weight -= evicted.size() + 1;
+			evictions.increment();
+		}
+	}
+
+	/**
+	 * Drops every rack and starts a new generation. Called holding the lock.
+	 */
+	private void clear() {
+
+		entries.clear();
+		weight = 0;
+		generation++;
+	}
+
+	/**
+	 * Looks for a cached rack with one more letter a to z and keeps the words
+	 * 	that fit in the smaller rack. Called holding the lock.
+	 * @param key sorted letters of the smaller rack.
+	 * @return words of the smaller rack, or null if no larger rack is cached.
+	 */
+	private List<String> fromLargerRack(String key) {
+
+		// only racks of the letters a to z are looked up
+		for (int i = 0; i < key.length(); i++) {
+			if (key.charAt(i) < 'a' || key.charAt(i) > 'z') {
+				return null;
+			}
+		}
+
+		char[] larger = new char[key.length() + 1];
+		for (char letter = 'a'; letter <= 'z'; letter++) {
+
+			// insert the letter in sorted position
+			int at = 0;
+			while (at < key.length() && key.charAt(at) <= letter) {
+				larger[at] = key.charAt(at);
+				at++;
+			}
+			larger[at] = letter;
+			key.getChars(at, key.length(), larger, at + 1);
+
+			List<String> words = entries.get(new String(larger));
+			if (words != null) {
+				return filter(words, key);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Keeps the words that can be made from the letters of a key.
+	 * @param words sorted words of a larger rack.
+	 * @param key sorted letters a to z.
+	 * @return unmodifiable sorted list of the words that fit.
+	 */
+	private static List<String> filter(List<String> words, String key) {
+
+		int[] rack = new int[26];
+		for (int i = 0; i < key.length(); i++) {
+			rack[key.charAt(i) - 'a']++;
+		}
+
+		ArrayList<String> fit = new ArrayList<String>();
+		int[] counts = new int[26];
+		for (String word : words) {
+
+			System.arraycopy(rack, 0, counts, 0, counts.length);
+			boolean fits = true;
+			for (int i = 0; i < word.length() && fits; i++) {
+				int letter = word.charAt(i) - 'a';
+				fits = (letter >= 0 && letter < 26 && --counts[letter] >= 0);
+			}
+			if (fits) {
+				fit.add(word);
+			}
+		}
+		return Collections.unmodifiableList(fit);
+	}
+
+	/**
+	 * Returns the letters in sorted order, which is the same key for every
+	 * 	order of the same letters. Racks of single characters are keyed by the
+	 * 	characters, other racks by the letters joined with a separator.
+	 * @param letters rack of letters.
+	 * @return canonical key of the rack.
+	 */
+	static String key(String[] letters) {
+
+		boolean single = true;
+		for (String letter : letters) {
+			single &= (letter.length() == 1);
+		}
+
+		if (single) {
+			char[] chars = new char[letters.length];
+			for (int i = 0; i < letters.length; i++) {
+				chars[i] = letters[i].charAt(0);
+			}
+			Arrays.sort(chars);
+			return new String(chars);
+		}
+
+		String[] sorted = letters.clone();
+		Arrays.sort(sorted);
+		StringBuilder key = new StringBuilder();
+		for (String letter : sorted) {
+			key.append(SEPARATOR).append(letter);
+		}
+		return key.toString();
+	}
+}
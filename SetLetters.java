@@ -1,4 +1,7 @@
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 
 /**
@@ -10,6 +13,26 @@ import java.util.*;
  */
 public class SetLetters {
 	
+	/**
+	 * Ways of searching for the words that can be made from the letters. 
+	 * 	PERMUTATIONS builds words letter by letter and follows them through the dictionary, 
+	 * 	SIGNATURES looks up the sorted letters of every subset of the letters. 
+	 * 	PERMUTATIONS only visits prefixes of dictionary words, so its cost depends on the 
+	 * 	dictionary and not on the number of orderings of the rack, and is the one to use 
+	 * 	for long racks; SIGNATURES looks up every distinct subset, which doubles with 
+	 * 	every distinct letter. 
+	 */
+	public enum Search { PERMUTATIONS, SIGNATURES }
+	
+	// number of letters after which a parallel search stops splitting into tasks 
+	static final int DEFAULT_SPLIT_DEPTH = 2;
+	
+	// racks of at least this many letters are searched in parallel by FindWord 
+	static final int PARALLEL_LETTERS = 12;
+	
+	// fork/join pools by parallelism, created by the first search that needs one and kept for the next 
+	private static final ConcurrentHashMap<Integer, ForkJoinPool> POOLS = new ConcurrentHashMap<Integer, ForkJoinPool>();
+	
 	// Instance of dictionary class to access the content of dictionary file
 	
 	private Dictionary d; 
@@ -26,84 +49,361 @@ public class SetLetters {
 	 */
 	public SetLetters(String[] letters, String[] dictionaryList) {
 
-		d = new Dictionary(dictionaryList);
-		createLettersLoop(letters);
+		this(letters, new Dictionary(dictionaryList));
 
 	}
+	
+	/**
+	 * Creates different words from the letters and searches for them in a dictionary 
+	 * 	that has already been loaded, so several searches can share one dictionary. 
+	 * @param letters string array of letters 
+	 * @param dictionary dictionary that words are searched for in 
+	 */
+	public SetLetters(String[] letters, Dictionary dictionary) {
+		
+		this(letters, dictionary, Search.PERMUTATIONS);
+	}
+	
+	/**
+	 * Searches for the words that can be made from the letters in a dictionary that 
+	 * 	has already been loaded, using the given kind of search. 
+	 * @param letters string array of letters 
+	 * @param dictionary dictionary that words are searched for in 
+	 * @param search kind of search to use 
+	 */
+	public SetLetters(String[] letters, Dictionary dictionary, Search search) {
+		
+		d = dictionary;
+		if (TreeMetrics.ENABLED) {
+			TreeMetrics.rack();
+		}
+		
+		if (search == Search.SIGNATURES) {
+			
+			// words of two or more letters, already sorted and unique 
+			wordFound.addAll(d.wordsFromLetters(String.join("", letters), 2));
+		}
+		else {
+			createLettersLoop(letters);
+		}
+	}
+	
+	/**
+	 * Searches for the words that can be made from the letters on a fork/join pool, 
+	 * 	splitting the search into one task per prefix of DEFAULT_SPLIT_DEPTH letters. 
+	 * @param letters string array of letters 
+	 * @param dictionary dictionary that words are searched for in 
+	 * @param parallelism number of worker threads 
+	 * @see #SetLetters(String[], Dictionary, int, int)
+	 */
+	public SetLetters(String[] letters, Dictionary dictionary, int parallelism) {
+		
+		this(letters, dictionary, parallelism, DEFAULT_SPLIT_DEPTH);
+	}
+	
+	/**
+	 * Searches for the words that can be made from the letters on a fork/join pool. 
+	 * 	The words starting with different letters are found independently, so every 
+	 * 	prefix shorter than splitDepth letters is split into one task per letter that 
+	 * 	can follow it, and longer prefixes are searched sequentially by a single task 
+	 * 	with its own dictionary cursor. Each task returns its own list of words and 
+	 * 	the lists are joined in letter order, so the words are found in the same order 
+	 * 	as the sequential search without any locking. Searches with the same parallelism 
+	 * 	share one pool, so a search does not start and stop its own worker threads. 
+	 * @param letters string array of letters 
+	 * @param dictionary dictionary that words are searched for in 
+	 * @param parallelism number of worker threads 
+	 * @param splitDepth length of the prefixes at which tasks stop splitting 
+	 * @throws IllegalArgumentException if parallelism or splitDepth is less than one 
+	 */
+	public SetLetters(String[] letters, Dictionary dictionary, int parallelism, int splitDepth) {
+		
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("Parallelism must be at least one: " + parallelism);
+		}
+		if (splitDepth < 1) {
+			throw new IllegalArgumentException("Split depth must be at least one: " + splitDepth);
+		}
+		
+		d = dictionary;
+		if (TreeMetrics.ENABLED) {
+			TreeMetrics.rack();
+		}
+		
+		LetterCounts rack = new LetterCounts(letters);
+		wordFound.addAll(pool(parallelism).invoke(new SearchTask(rack.letters, rack.counts, new int[0], splitDepth)));
+	}
+	
+	/**
+	 * Returns the pool shared by the parallel searches with a parallelism, creating 
+	 * 	it the first time. The workers of a fork/join pool are daemon threads that end 
+	 * 	when they have been idle for a while, so the pools are never shut down. 
+	 * @param parallelism number of worker threads 
+	 * @return fork/join pool with that parallelism 
+	 */
+	private static ForkJoinPool pool(int parallelism) {
+		
+		return POOLS.computeIfAbsent(parallelism, ForkJoinPool::new);
+	}
 		
 	/**
 	 * Makes different combinations of word from array of letters and checks whether the word exists in the dictionary 
-	 * This method calls the method in the helperDictionary and checkEquals method in the dictionary class   
+	 * This method creates a dictionary cursor at the given word and calls the cursor version of createLetters 
 	 * @param word that is checked for in the dictionary 
-	 * @param letters array of letters 
+	 * @param letters array of letters, used letters are null 
 	 */
 	public void createLetters(String word, String[] letters) {
 		
-		// initialize string for new word 
-		String[] tempArray = new String[letters.length];
+		PrefixCursor cursor = d.cursor();
 		
-		// loop through letters array 
-		for (int i = 0; i < letters.length; i++) { 
-			
-			// make a copy of letters array 
-			
-			for (int j = 0; j < letters.length; j++) {
-				tempArray[j] = letters[j];
+		// move cursor to the end of the word 
+		for (int i = 0; i < word.length(); i++) {
+			if (!cursor.push(word.charAt(i))) {
+				return;
 			}
+		}
+		
+		LetterCounts rack = new LetterCounts(letters);
+		createLetters(cursor, rack.letters, rack.counts, wordFound);
+	}
+	
+	/**
+	 * Makes different combinations of word from the letters and checks whether the word exists in the dictionary 
+	 * Each step picks one of the distinct letters that still has copies left, so a rack with repeated letters 
+	 * never explores the same word twice and every word is found exactly once. The cursor holds the word 
+	 * built so far and follows it through the dictionary, so adding a letter only narrows the words found 
+	 * for the shorter prefix   
+	 * @param cursor dictionary cursor at the word built so far 
+	 * @param letters distinct letters of the rack 
+	 * @param counts copies left of each distinct letter 
+	 * @param found list the words found are added to 
+	 */
+	private void createLetters(PrefixCursor cursor, String[] letters, int[] counts, List<String> found) {
+		
+		// loop through distinct letters 
+		for (int i = 0; i < letters.length; i++) { 
 			
-			// if the letter in array has already been used, use null as flag 
-			
-			if (tempArray[i] == null) {
+			// no copies of this letter left 
+			if (counts[i] == 0) {
 				continue;
 			}
 			
-			// otherwise concatenate to word and flag the letter that was used 
-			String newWord = word + tempArray[i];
-			tempArray[i] = null;
-			
-			
-			// check whether prefix of the word is found in dictionary if true call equals function  
-			if (d.prefixDictionary(newWord)) {
+			// check whether prefix of the word is found in dictionary if true check whole word  
+			if (pushLetter(cursor, letters[i])) {
+				
+				counts[i]--;
 								
-				if (d.checkEquals(newWord)) {
+				if (cursor.isWord()) {
 					
-					wordFound.add(newWord); 
+					found.add(cursor.word()); 
 				
 				}
 				
-				createLetters(newWord, tempArray);
+				createLetters(cursor, letters, counts, found);
+				
+				// put the letter back 
+				counts[i]++;
+				popLetter(cursor, letters[i]);
 	
 			} 		
 		} 
 	} 
 	
+	/**
+	 * Adds every character of a letter to the cursor. A letter that was added 
+	 * 	is counted as an expanded search node and one that was not as a pruned 
+	 * 	one when metrics are enabled. 
+	 * @param cursor dictionary cursor 
+	 * @param letter to add 
+	 * @return true if the dictionary has a word with the longer prefix, otherwise the cursor is unchanged 
+	 */
+	private boolean pushLetter(PrefixCursor cursor, String letter) {
+		
+		for (int i = 0; i < letter.length(); i++) {
+			
+			if (!cursor.push(letter.charAt(i))) {
+				
+				// undo the characters added so far 
+				for (; i > 0; i--) {
+					cursor.pop();
+				}
+				if (TreeMetrics.ENABLED) {
+					TreeMetrics.search(0, 1);
+				}
+				return false;
+			}
+		}
+		if (TreeMetrics.ENABLED) {
+			TreeMetrics.search(1, 0);
+		}
+		return true;
+	}
+	
+	/**
+	 * Removes the characters of a letter from the cursor. 
+	 * @param cursor dictionary cursor 
+	 * @param letter to remove 
+	 */
+	private void popLetter(PrefixCursor cursor, String letter) {
+		
+		for (int i = 0; i < letter.length(); i++) {
+			cursor.pop();
+		}
+	}
+	
 	// calls createLetter method with different letters as parameter 
 	
 	/**
-	 * Iterates through every letter in the array and creates different combinations of words starting with that letter  
+	 * Iterates through every distinct letter in the array and creates different combinations of words starting with that letter  
 	 * This method calls createLetters method 
 	 * @param lettersInput string array of letters 
 	 */
 	
 	private void createLettersLoop(String[] lettersInput) {
 		
-		// make copy of the array 
+		PrefixCursor cursor = d.cursor();
+		LetterCounts rack = new LetterCounts(lettersInput);
+		
+		for (int j = 0; j < rack.letters.length; j++) {
+			
+			// single letters are not reported as words 
+			if (pushLetter(cursor, rack.letters[j])) {
+				rack.counts[j]--;
+				createLetters(cursor, rack.letters, rack.counts, wordFound);
+				rack.counts[j]++;
+				popLetter(cursor, rack.letters[j]);
+			}
+		}	
+	}
+	
+	/**
+	 * Fork/join task that finds the words starting with one prefix of the rack. 
+	 * 	The dictionary is only read, so tasks share it and the distinct letters, 
+	 * 	while every task has its own cursor and copy of the letter counts. 
+	 */
+	private class SearchTask extends RecursiveTask<List<String>> {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private final String[] letters;
+		private final int[] counts;
+		
+		// distinct letters that make up the prefix, in order 
+		private final int[] prefix;
+		private final int splitDepth;
+		
+		/**
+		 * Constructor sets the prefix the task searches from. 
+		 * @param letters distinct letters of the rack 
+		 * @param counts copies of each distinct letter not used by the prefix 
+		 * @param prefix indexes of the letters of the prefix 
+		 * @param splitDepth length of the prefixes at which tasks stop splitting 
+		 */
+		SearchTask(String[] letters, int[] counts, int[] prefix, int splitDepth) {
+			
+			this.letters = letters;
+			this.counts = counts;
+			this.prefix = prefix;
+			this.splitDepth = splitDepth;
+		}
+		
+		/**
+		 * Reports the prefix if it is a word, then either forks a task for every 
+		 * 	letter that can follow the prefix or searches the rest sequentially. 
+		 * @return words starting with the prefix in search order 
+		 */
+		@Override
+		protected List<String> compute() {
 			
-		for (int j = 0; j < lettersInput.length; j++) {
+			List<String> found = new ArrayList<String>();
+			PrefixCursor cursor = d.cursor();
 			
-			String[] temp = new String[lettersInput.length];			
-			for (int i = 0; i < temp.length; i++) {
-				temp[i] = lettersInput[i];
+			// move cursor to the end of the prefix, which the parent task checked and counted 
+			for (int i = 0; i < prefix.length; i++) {
+				String letter = letters[prefix[i]];
+				for (int j = 0; j < letter.length(); j++) {
+					cursor.push(letter.charAt(j));
+				}
 			}
 			
-			temp[j] = null;
-			createLetters(lettersInput[j], temp);
+			// single letters are not reported as words 
+			if (prefix.length > 1 && cursor.isWord()) {
+				found.add(cursor.word());
+			}
 			
-		}	
+			// long prefix, search sequentially 
+			if (prefix.length >= splitDepth) {
+				createLetters(cursor, letters, counts, found);
+				return found;
+			}
+			
+			// one task for every letter that some word continues the prefix with 
+			List<SearchTask> tasks = new ArrayList<SearchTask>();
+			for (int i = 0; i < letters.length; i++) {
+				
+				if (counts[i] > 0 && pushLetter(cursor, letters[i])) {
+					
+					popLetter(cursor, letters[i]);
+					
+					int[] next = Arrays.copyOf(prefix, prefix.length + 1);
+					next[prefix.length] = i;
+					int[] left = counts.clone();
+					left[i]--;
+					tasks.add(new SearchTask(letters, left, next, splitDepth));
+				}
+			}
+			
+			// join the results in letter order 
+			invokeAll(tasks);
+			for (SearchTask task : tasks) {
+				found.addAll(task.join());
+			}
+			return found;
+		}
 	}
 	
 	/**
-	 * Removes duplicates and sorts the arrays of words found in the dictionary 
+	 * Distinct letters of a rack and how many copies of each it has. 
+	 */
+	private static class LetterCounts {
+		
+		final String[] letters;
+		final int[] counts;
+		
+		/**
+		 * Groups equal letters together, skipping letters that are null. 
+		 * @param rack array of letters 
+		 */
+		LetterCounts(String[] rack) {
+			
+			String[] sorted = new String[rack.length];
+			int size = 0;
+			for (int i = 0; i < rack.length; i++) {
+				if (rack[i] != null) {
+					sorted[size++] = rack[i];
+				}
+			}
+			Arrays.sort(sorted, 0, size);
+			
+			String[] distinct = new String[size];
+			int[] copies = new int[size];
+			int kinds = 0;
+			for (int i = 0; i < size; i++) {
+				if (kinds == 0 || !distinct[kinds - 1].equals(sorted[i])) {
+					distinct[kinds++] = sorted[i];
+				}
+				copies[kinds - 1]++;
+			}
+			
+			letters = Arrays.copyOf(distinct, kinds);
+			counts = Arrays.copyOf(copies, kinds);
+		}
+	}
+	
+	/**
+	 * Sorts the words found in the dictionary. The search finds every word once, 
+	 * 	so duplicates only appear when letters of more than one character can 
+	 * 	spell the same word; they are removed in a single pass. 
 	 * @return words found that are unique and sorted
 	 */
 	public Collection <String> getArray() {
@@ -111,13 +411,54 @@ public class SetLetters {
 		// sort the array  
 		Collections.sort(wordFound);
 		
-		// remove duplicates
-		for (int i = wordFound.size()-1; i > 0; i--) {
+		// move unique words to the front and cut off the rest 
+		int unique = 0;
+		for (int i = 0; i < wordFound.size(); i++) {
 			
-			if (wordFound.get(i).equals(wordFound.get(i-1))) {
-				wordFound.remove(i);
+			if (unique == 0 || !wordFound.get(i).equals(wordFound.get(unique - 1))) {
+				wordFound.set(unique++, wordFound.get(i));
 			}
 		}
+		wordFound.subList(unique, wordFound.size()).clear();
 		return wordFound;
 	}
+	
+	/**
+	 * Returns the words found from the most to the least frequent, with words of 
+	 * 	equal frequency in alphabetical order. The frequency of each word is read 
+	 * 	with one walk down the map, and words missing from it count as 0. 
+	 * @param frequencies frequency of each word, such as one loaded with DictionaryLoader.loadFrequencies 
+	 * @return words found that are unique, most frequent first 
+	 */
+	public List<String> getRanked(AVLTreeLongMap<String> frequencies) {
+		
+		return rank(getArray(), frequencies);
+	}
+	
+	/**
+	 * Orders words from the most to the least frequent, keeping the order of words 
+	 * 	of equal frequency, such as the sorted words of a rack solved before. 
+	 * @param found words that are ranked 
+	 * @param frequencies frequency of each word, words missing from it count as 0 
+	 * @return new list of the words, most frequent first 
+	 */
+	public static List<String> rank(Collection<String> found, AVLTreeLongMap<String> frequencies) {
+		
+		String[] words = found.toArray(new String[0]);
+		long[] counts = new long[words.length];
+		Integer[] order = new Integer[words.length];
+		for (int i = 0; i < words.length; i++) {
+			counts[i] = frequencies.get(words[i]);
+			order[i] = i;
+		}
+		
+		// the sort is stable, so equal counts keep alphabetical order 
+		Arrays.sort(order, (a, b) -> Long.compare(counts[b], counts[a]));
+		
+		List<String> ranked = new ArrayList<String>(words.length);
+		for (int index : order) {
+			ranked.add(words[index]);
+		}
+		return ranked;
+	}
 }
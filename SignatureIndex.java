@@ -0,0 +1,115 @@
+import java.util.*;
+
+/**
+ * SignatureIndex class groups the words of a dictionary by their letter
+ * 	signature, the letters of the word in sorted order. Two words have the same
+ * 	signature exactly when they are anagrams of each other, so all the anagrams
+ * 	of a set of letters are found with one lookup. The words that can be made
+ * 	from some of the letters are found by looking up the signature of every
+ * 	distinct sub-multiset of the letters, which does not depend on the order of
+ * 	the letters and never produces the same word twice.
+ * @author Adisa Narula
+ */
+public class SignatureIndex {
+
+	// words of every signature, in sorted order
+	private final HashMap<String, String[]> index;
+
+	/**
+	 * Constructor builds the index from the words of a dictionary.
+	 * @param words words of the dictionary, in sorted order and without duplicates.
+	 */
+	public SignatureIndex(Iterable<String> words) {
+
+		HashMap<String, ArrayList<String>> groups = new HashMap<String, ArrayList<String>>();
+		for (String word : words) {
+			groups.computeIfAbsent(signature(word), key -> new ArrayList<String>(1)).add(word);
+		}
+
+		index = new HashMap<String, String[]>(groups.size() * 4 / 3 + 1);
+		for (Map.Entry<String, ArrayList<String>> group : groups.entrySet()) {
+			ArrayList<String> list = group.getValue();
+			index.put(group.getKey(), list.toArray(new String[list.size()]));
+		}
+	}
+
+	/**
+	 * Returns the letters of a word in sorted order.
+	 * @param word to find the signature of.
+	 * @return signature of the word.
+	 */
+	public static String signature(String word) {
+
+		char[] letters = word.toCharArray();
+		Arrays.sort(letters);
+		return new String(letters);
+	}
+
+	/**
+	 * Returns the words that use exactly the given letters.
+	 * @param letters letters of the words, in any order.
+	 * @return anagrams of the letters in sorted order.
+	 */
+	public List<String> anagrams(String letters) {
+
+		String[] words = index.get(signature(letters));
+		return (words == null) ? Collections.<String>emptyList() : Collections.unmodifiableList(Arrays.asList(words));
+	}
+
+	/**
+	 * Returns every word that can be made from some of the letters, each
+	 * 	letter used at most as many times as it appears.
+	 * @param letters letters that can be used, in any order.
+	 * @param minLength shortest word to return.
+	 * @return words in sorted order without duplicates.
+	 */
+	public List<String> wordsFromLetters(String letters, int minLength) {
+
+		char[] sorted = letters.toCharArray();
+		Arrays.sort(sorted);
+
+		// distinct letters and how many times each one appears
+		char[] distinct = new char[sorted.length];
+		int[] counts = new int[sorted.length];
+		int kinds = 0;
+		for (int i = 0; i < sorted.length; i++) {
+			if (kinds == 0 || distinct[kinds - 1] != sorted[i]) {
+				distinct[kinds++] = sorted[i];
+			}
+			counts[kinds - 1]++;
+		}
+
+		ArrayList<String> found = new ArrayList<String>();
+		collect(distinct, counts, kinds, 0, new char[sorted.length], 0, Math.max(minLength, 1), found);
+
+		// every signature is looked up once, so the words are already unique
+		Collections.sort(found);
+		return found;
+	}
+
+	/**
+	 * Recursively chooses how many copies of each distinct letter to use and
+	 * 	looks up the signature of every choice. The signature is built in sorted
+	 * 	order because the distinct letters are sorted.
+	 */
+	private void collect(char[] distinct, int[] counts, int kinds, int kind, char[] signature, int length,
+			int minLength, List<String> found) {
+
+		if (kind == kinds) {
+			if (length >= minLength) {
+				String[] words = index.get(new String(signature, 0, length));
+				if (words != null) {
+					Collections.addAll(found, words);
+				}
+			}
+			return;
+		}
+
+		for (int copies = 0; copies <= counts[kind]; copies++) {
+			if (copies > 0) {
+				signature[length + copies - 1] = distinct[kind];
+			}
+			collect(distinct, counts, kinds, kind + 1, signature, length + copies, minLength, found);
+		}
+	}
+}
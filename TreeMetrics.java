@@ -0,0 +1,485 @@
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * TreeMetrics class counts what AVLTree and SetLetters do on their hot paths:
+ * 	comparisons, including the characters compared by the binary searches of
+ * 	a PrefixCursor, rotations of every kind, nodes visited by lookups and
+ * 	updates with the deepest path, and the search nodes expanded and pruned
+ * 	per rack.
+ *
+ * 	Counting is off unless the JVM is started with -Davltree.metrics=true.
+ * 	ENABLED is a static final constant, so when it is false the JIT removes the
+ * 	counting code and the hot paths cost the same as without it. The counters
+ * 	are shared by all trees and threads. They are read with snapshot() or
+ * 	through the MXBean registered by registerMBean().
+ * @author Adisa Narula
+ */
+public final class TreeMetrics {
+
+	// true when the JVM was started with -Davltree.metrics=true
+	public static final boolean ENABLED = Boolean.getBoolean("avltree.metrics");
+
+	// name of the MXBean
+	public static final String MBEAN_NAME = "avltree:type=TreeMetrics";
+
+	private static final LongAdder comparisons = new LongAdder();
+
+	private static final LongAdder lookups = new LongAdder();
+	private static final LongAdder lookupNodes = new LongAdder();
+	private static final LongAccumulator maxLookupDepth = new LongAccumulator(Math::max, 0);
+
+	private static final LongAdder updates = new LongAdder();
+	private static final LongAdder updateNodes = new LongAdder();
+	private static final LongAccumulator maxUpdateDepth = new LongAccumulator(Math::max, 0);
+
+	// rotations by kind, in the order LL, LR, RL, RR
+	static final int LL = 0;
+	static final int LR = 1;
+	static final int RL = 2;
+	static final int RR = 3;
+	private static final LongAdder[] rotations = { new LongAdder(), new LongAdder(), new LongAdder(), new LongAdder() };
+
+	private static final LongAdder racks = new LongAdder();
+	private static final LongAdder expanded = new LongAdder();
+	private static final LongAdder pruned = new LongAdder();
+
+	private TreeMetrics() {
+	}
+
+	/**
+	 * Records a lookup that visited nodes, comparing once at every node.
+	 * @param nodes number of nodes visited.
+	 */
+	static void lookup(int nodes) {
+
+		comparisons.add(nodes);
+		lookups.increment();
+		lookupNodes.add(nodes);
+		maxLookupDepth.accumulate(nodes);
+	}
+
+	/**
+	 * Records an add or remove whose path from the root had nodes.
+	 * @param nodes number of nodes on the path.
+	 * @param compared number of comparisons made on the way down.
+	 */
+	static void update(int nodes, int compared) {
+
+		comparisons.add(compared);
+		updates.increment();
+		updateNodes.add(nodes);
+		maxUpdateDepth.accumulate(nodes);
+	}
+
+	/**
+	 * Records comparisons that are not part of a lookup or an update.
+	 * @param count number of comparisons.
+	 */
+	static void compared(int count) {
+
+		comparisons.add(count);
+	}
+
+	/**
+	 * Records a rotation.
+	 * @param kind LL, LR, RL or RR.
+	 */
+	static void rotation(int kind) {
+
+		rotations[kind].increment();
+	}
+
+	/**
+	 * Records a rack that was solved.
+	 */
+	static void rack() {
+
+		racks.increment();
+	}
+
+	/**
+	 * Records letters added to a word in the rack search. A letter that some
+	 * 	dictionary word continues with is expanded, the others are pruned.
+	 * @param expandedNodes number of search nodes expanded.
+	 * @param prunedNodes number of search nodes pruned.
+	 */
+	static void search(long expandedNodes, long prunedNodes) {
+
+		expanded.add(expandedNodes);
+		pruned.add(prunedNodes);
+	}
+
+	/**
+	 * Returns the current value of every counter. The counters keep changing
+	 * 	while the snapshot is taken, so values of different counters can be
+	 * 	from slightly different moments.
+	 * @return copy of the counters.
+	 */
+	public static Snapshot snapshot() {
+
+		return new Snapshot();
+	}
+
+	/**
+	 * Sets every counter back to zero.
+	 */
+	public static void reset() {
+
+		for (LongAdder adder : new LongAdder[] { comparisons, lookups, lookupNodes, updates, updateNodes, racks, expanded, pruned }) {
+			adder.reset();
+		}
+		for (LongAdder adder : rotations) {
+			adder.reset();
+		}
+		maxLookupDepth.reset();
+		maxUpdateDepth.reset();
+	}
+
+	/**
+	 * Registers the MXBean with the platform MBean server, so the counters can
+	 * 	be read with JConsole or any JMX client. Registering twice does nothing.
+	 * @throws JMException if the bean cannot be registered.
+	 */
+	public static synchronized void registerMBean() throws JMException {
+
+		ObjectName name = new ObjectName(MBEAN_NAME);
+		if (!ManagementFactory.getPlatformMBeanServer().isRegistered(name)) {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(new Bean(), name);
+		}
+	}
+
+	/**
+	 * Returns the average of a total over a count.
+	 * @param total sum of the values.
+	 * @param count number of values.
+	 * @return average, or 0 if count is 0.
+	 */
+	private static double average(long total, long count) {
+
+		return (count == 0) ? 0 : (double) total / count;
+	}
+
+	/**
+	 * Counters exposed through JMX. Every attribute is read when it is requested.
+	 */
+	public interface TreeMetricsMXBean {
+
+		boolean isEnabled();
+		long getComparisons();
+		long getLookups();
+		double getAverageLookupNodes();
+		long getMaxLookupDepth();
+		long getUpdates();
+		double getAverageUpdateDepth();
+		long getMaxUpdateDepth();
+		long getRotationsLL();
+		long getRotationsLR();
+		long getRotationsRL();
+		long getRotationsRR();
+		long getRacks();
+		double getExpandedPerRack();
+		double getPrunedPerRack();
+		void reset();
+	}
+
+	/**
+	 * Copy of the counters at one moment.
+	 */
+	public static final class Snapshot {
+
+		private final long comparisonCount = comparisons.sum();
+		private final long lookupCount = lookups.sum();
+		private final long lookupNodeCount = lookupNodes.sum();
+		private final long lookupDepth = maxLookupDepth.get();
+		private final long updateCount = updates.sum();
+		private final long updateNodeCount = updateNodes.sum();
+		private final long updateDepth = maxUpdateDepth.get();
+		private final long[] rotationCounts = { rotations[LL].sum(), rotations[LR].sum(), rotations[RL].sum(), rotations[RR].sum() };
+		private final long rackCount = racks.sum();
+		private final long expandedCount = expanded.sum();
+		private final long prunedCount = pruned.sum();
+
+		private Snapshot() {
+		}
+
+		/**
+		 * Returns whether counting is on.
+		 * @return true if the JVM was started with -Davltree.metrics=true.
+		 */
+		public boolean isEnabled() {
+
+			return ENABLED;
+		}
+
+		/**
+		 * Returns the number of comparisons made by lookups, updates and searches.
+		 * @return comparisons.
+		 */
+		public long getComparisons() {
+
+			return comparisonCount;
+		}
+
+		/**
+		 * Returns the number of lookups.
+		 * @return lookups.
+		 */
+		public long getLookups() {
+
+			return lookupCount;
+		}
+
+		/**
+		 * Returns the average number of nodes a lookup visited.
+		 * @return nodes per lookup, or 0 if there were no lookups.
+		 */
+		public double getAverageLookupNodes() {
+
+			return average(lookupNodeCount, lookupCount);
+		}
+
+		/**
+		 * Returns the most nodes a single lookup visited.
+		 * @return deepest lookup.
+		 */
+		public long getMaxLookupDepth() {
+
+			return lookupDepth;
+		}
+
+		/**
+		 * Returns the number of adds and removes.
+		 * @return updates.
+		 */
+		public long getUpdates() {
+
+			return updateCount;
+		}
+
+		/**
+		 * Returns the average length of the path of an update.
+		 * @return nodes per update, or 0 if there were no updates.
+		 */
+		public double getAverageUpdateDepth() {
+
+			return average(updateNodeCount, updateCount);
+		}
+
+		/**
+		 * Returns the longest path of a single update.
+		 * @return deepest update.
+		 */
+		public long getMaxUpdateDepth() {
+
+			return updateDepth;
+		}
+
+		/**
+		 * Returns the number of single right rotations for a left left case.
+		 * @return LL rotations.
+		 */
+		public long getRotationsLL() {
+
+			return rotationCounts[LL];
+		}
+
+		/**
+		 * Returns the number of double rotations for a left right case.
+		 * @return LR rotations.
+		 */
+		public long getRotationsLR() {
+
+			return rotationCounts[LR];
+		}
+
+		/**
+		 * Returns the number of double rotations for a right left case.
+		 * @return RL rotations.
+		 */
+		public long getRotationsRL() {
+
+			return rotationCounts[RL];
+		}
+
+		/**
+		 * Returns the number of single left rotations for a right right case.
+		 * @return RR rotations.
+		 */
+		public long getRotationsRR() {
+
+			return rotationCounts[RR];
+		}
+
+		/**
+		 * Returns the number of racks solved.
+		 * @return racks.
+		 */
+		public long getRacks() {
+
+			return rackCount;
+		}
+
+		/**
+		 * Returns the number of search nodes expanded by all racks.
+		 * @return search nodes expanded.
+		 */
+		public long getExpanded() {
+
+			return expandedCount;
+		}
+
+		/**
+		 * Returns the number of search nodes pruned by all racks.
+		 * @return search nodes pruned.
+		 */
+		public long getPruned() {
+
+			return prunedCount;
+		}
+
+		/**
+		 * Returns the average number of search nodes expanded per rack.
+		 * @return expanded nodes per rack, or 0 if no rack was solved.
+		 */
+		public double getExpandedPerRack() {
+
+			return average(expandedCount, rackCount);
+		}
+
+		/**
+		 * Returns the average number of search nodes pruned per rack.
+		 * @return pruned nodes per rack, or 0 if no rack was solved.
+		 */
+		public double getPrunedPerRack() {
+
+			return average(prunedCount, rackCount);
+		}
+
+		/**
+		 * Formats the counters as lines of name and value.
+		 * @return counters as text.
+		 */
+		@Override
+		public String toString() {
+
+			return String.format("metrics enabled %b%n"
+					+ "comparisons %d%n"
+					+ "lookups %d avg nodes %.2f max depth %d%n"
+					+ "updates %d avg depth %.2f max depth %d%n"
+					+ "rotations LL %d LR %d RL %d RR %d%n"
+					+ "racks %d expanded %d (%.1f per rack) pruned %d (%.1f per rack)%n",
+					ENABLED, comparisonCount,
+					lookupCount, getAverageLookupNodes(), lookupDepth,
+					updateCount, getAverageUpdateDepth(), updateDepth,
+					rotationCounts[LL], rotationCounts[LR], rotationCounts[RL], rotationCounts[RR],
+					rackCount, expandedCount, getExpandedPerRack(), prunedCount, getPrunedPerRack());
+		}
+	}
+
+	/**
+	 * MXBean that sums the counters an attribute needs every time it is asked
+	 * 	for it, without copying the others.
+	 */
+	private static final class Bean implements TreeMetricsMXBean {
+
+		@Override
+		public boolean isEnabled() {
+
+			return ENABLED;
+		}
+
+		@Override
+		public long getComparisons() {
+
+			return comparisons.sum();
+		}
+
+		@Override
+		public long getLookups() {
+
+			return lookups.sum();
+		}
+
+		@Override
+		public double getAverageLookupNodes() {
+
+			return average(lookupNodes.sum(), lookups.sum());
+		}
+
+		@Override
+		public long getMaxLookupDepth() {
+
+			return maxLookupDepth.get();
+		}
+
+		@Override
+		public long getUpdates() {
+
+			return updates.sum();
+		}
+
+		@Override
+		public double getAverageUpdateDepth() {
+
+			return average(updateNodes.sum(), updates.sum());
+		}
+
+		@Override
+		public long getMaxUpdateDepth() {
+
+			return maxUpdateDepth.get();
+		}
+
+		@Override
+		public long getRotationsLL() {
+
+			return rotations[LL].sum();
+		}
+
+		@Override
+		public long getRotationsLR() {
+
+			return rotations[LR].sum();
+		}
+
+		@Override
+		public long getRotationsRL() {
+
+			return rotations[RL].sum();
+		}
+
+		@Override
+		public long getRotationsRR() {
+
+			return rotations[RR].sum();
+		}
+
+		@Override
+		public long getRacks() {
+
+			return racks.sum();
+		}
+
+		@Override
+		public double getExpandedPerRack() {
+
+			return average(expanded.sum(), racks.sum());
+		}
+
+		@Override
+		public double getPrunedPerRack() {
+
+			return average(pruned.sum(), racks.sum());
+		}
+
+		@Override
+		public void reset() {
+
+			TreeMetrics.reset();
+		}
+	}
+}
@@ -0,0 +1,45 @@
+/**
+ * WordIndex interface is a read only set of words in sorted order that a
+ * 	Dictionary searches instead of its tree. It is implemented by indexes that
+ * 	keep the words as UTF-8 bytes, so words are compared byte by byte as
+ * 	unsigned values.
+ * @author Adisa Narula
+ */
+public interface WordIndex extends Iterable<String> {
+
+	/**
+	 * Returns the number of words in the index.
+	 * @return number of words.
+	 */
+	int size();
+
+	/**
+	 * Checks whether the index contains the word.
+	 * @param wordToSearch word that is searched for.
+	 * @return true if the word is in the index.
+	 */
+	boolean checkEquals(String wordToSearch);
+
+	/**
+	 * Checks whether any word in the index starts with the prefix.
+	 * @param wordToSearch prefix that is searched for.
+	 * @return true if a word starts with the prefix.
+	 */
+	boolean prefixDictionary(String wordToSearch);
+
+	/**
+	 * Returns the words that start with the prefix in sorted order.
+	 * @param prefix that the words start with.
+	 * @return iterable view of the words starting with the prefix.
+	 */
+	Iterable<String> wordsWithPrefix(String prefix);
+
+	/**
+	 * Returns the words from one word (inclusive) to another (exclusive) in
+	 * 	sorted order.
+	 * @param from low end point of the range, inclusive.
+	 * @param to high end point of the range, exclusive.
+	 * @return iterable view of the words in the range.
+	 */
+	Iterable<String> wordsInRange(String from, String to);
+}